@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Calibration blocks of sensors, kept in a small local file.
+ *
+ * <p>Calibration registers 0x30-0x3F are trimmed in the factory and never
+ * change, so a sensor constructed with a cache reads them from the file
+ * instead of the bus. Entries are keyed by bus, e.g. controller number, and
+ * carry a CRC32 of the block as device fingerprint: a corrupted entry is
+ * ignored, and {@link SensorHTS221#validateCalibration()} replaces the entry
+ * when the device on that bus turns out to be a different one.
+ * <p>The file is a properties file, written through a temporary file and
+ * renamed, so a crash never leaves it half written. Methods are
+ * thread-safe, one instance can be shared by many sensors.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class CalibrationCache {
+    private final Path file;
+    private final Properties entries = new Properties();
+
+   /** Constructs new cache and loads the file.
+    * <p>Missing or unreadable file gives an empty cache.
+    * @param file File the cache is kept in.
+    */
+    public CalibrationCache(Path file){
+        this.file = file;
+        try (InputStream in = Files.newInputStream(file)) {
+            entries.load(in);
+        } catch (NoSuchFileException e) {
+            // first run
+        } catch (IOException | IllegalArgumentException e) {
+            entries.clear();    // unreadable, will be rewritten
+        }
+    }
+
+   /** Returns the key of a sensor on its own I2C controller.
+    * @param controllerNumber Number of I2C Bus controller.
+    */
+    public static String key(int controllerNumber){
+        return "i2c" + controllerNumber;
+    }
+
+   /** Copies the calibration block of the key.
+    * @param key Key of the sensor.
+    * @param block 16 bytes to fill with content of registers 0x30-0x3F.
+    * @return False if there is no valid entry, block is left as is then.
+    */
+    public synchronized boolean get(String key, byte[] block){
+        String value = entries.getProperty(key);
+        if (value == null || value.length() != 41 || value.charAt(32) != ':') return false;
+        byte[] b = new byte[16];
+        try {
+            for (int i = 0; i < 16; i++) {
+                b[i] = (byte) Integer.parseInt(value.substring(2 * i, 2 * i + 2), 16);
+            }
+            if (Long.parseLong(value.substring(33), 16) != fingerprint(b)) return false;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        System.arraycopy(b, 0, block, 0, 16);
+        return true;
+    }
+
+   /** Stores the calibration block of the key and writes the file.
+    * @param key Key of the sensor.
+    * @param block Content of registers 0x30-0x3F.
+    * @throws IOException
+    */
+    public synchronized void put(String key, byte[] block) throws IOException{
+        StringBuilder value = new StringBuilder(41);
+        for (int i = 0; i < 16; i++) value.append(String.format("%02x", block[i] & 0xFF));
+        value.append(':').append(String.format("%08x", fingerprint(block)));
+        entries.setProperty(key, value.toString());
+        save();
+    }
+
+   /** Removes the entry of the key and writes the file.
+    * @param key Key of the sensor.
+    * @throws IOException
+    */
+    public synchronized void remove(String key) throws IOException{
+        if (entries.remove(key) != null) save();
+    }
+
+    // Returns CRC32 of the first 16 bytes of block.
+    static long fingerprint(byte[] block){
+        CRC32 crc = new CRC32();
+        crc.update(block, 0, 16);
+        return crc.getValue();
+    }
+
+    // Writes all entries to a temporary file and renames it over the file.
+    private void save() throws IOException{
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                entries.store(out, "HTS221 calibration, registers 0x30-0x3F:CRC32");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Immutable sensor configuration.
+ *
+ * <p>Compiles to the content of AV_CONF, CTRL_REG1 and CTRL_REG3 and is
+ * applied with {@link SensorHTS221#apply(ConfigHTS221)}, which writes only
+ * the registers that change, in as few transactions as possible.
+ * Build it with {@link Builder} or take one of the presets.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public final class ConfigHTS221 {
+
+   /** Least averaging, 1 Hz. Lowest supply current, highest noise. */
+    public static final ConfigHTS221 LOW_POWER = new Builder()
+                        .setAVG(0, 0)
+                        .setODR(1)
+                        .build();
+
+   /** Default averaging of the sensor, 1 Hz. */
+    public static final ConfigHTS221 BALANCED = new Builder()
+                        .setAVG(3, 3)
+                        .setODR(1)
+                        .build();
+
+   /** Most averaging, 1 Hz. Lowest noise, highest supply current. */
+    public static final ConfigHTS221 MAX_ACCURACY = new Builder()
+                        .setAVG(7, 7)
+                        .setODR(1)
+                        .build();
+
+    private final byte avConf;
+    private final byte ctrlReg1;
+    private final byte ctrlReg3;
+
+    private ConfigHTS221(Builder b){
+        avConf = (byte) (b.rateTemp << 3 | b.rateHum);
+        ctrlReg1 = (byte) ((b.power ? 0b1000_0000 : 0) | (b.bdu ? 0b0000_0100 : 0) | b.rate);
+        ctrlReg3 = (byte) ((b.drdyHigh ? 0 : 0b1000_0000) | (b.pushPull ? 0b0100_0000 : 0));
+    }
+
+    // Register contents.
+    byte avConf(){
+        return avConf;
+    }
+
+    byte ctrlReg1(){
+        return ctrlReg1;
+    }
+
+    byte ctrlReg3(){
+        return ctrlReg3;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if (!(o instanceof ConfigHTS221)) return false;
+        ConfigHTS221 c = (ConfigHTS221) o;
+        return avConf == c.avConf && ctrlReg1 == c.ctrlReg1 && ctrlReg3 == c.ctrlReg3;
+    }
+
+    @Override
+    public int hashCode(){
+        return (avConf & 0xFF) << 16 | (ctrlReg1 & 0xFF) << 8 | ctrlReg3 & 0xFF;
+    }
+
+    /**
+     * Builds {@link ConfigHTS221}.
+     *
+     * <p>Defaults: averaging 3/3, one shot, BDU on, powered on, DRDY active
+     * high, push-pull. Setters take the same values as corresponding
+     * methods of {@link SensorHTS221}.
+     */
+    public static final class Builder {
+        private int rateTemp = 3;
+        private int rateHum = 3;
+        private int rate = 0;
+        private boolean bdu = true;
+        private boolean power = true;
+        private boolean drdyHigh = true;
+        private boolean pushPull = true;
+
+       /** See {@link SensorHTS221#setAVG(int, int)}. */
+        public Builder setAVG(int rateTemp, int rateHum){
+            if (rateTemp < 0 || rateTemp > 7) throw new IllegalArgumentException("rateTemp should be in range 0-7");
+            if (rateHum < 0 || rateHum > 7) throw new IllegalArgumentException("rateHum should be in range 0-7");
+            this.rateTemp = rateTemp;
+            this.rateHum = rateHum;
+            return this;
+        }
+
+       /** See {@link SensorHTS221#setODR(int)}. */
+        public Builder setODR(int rate){
+            if (rate < 0 || rate > 3) throw new IllegalArgumentException("Argument "
+                    + "should be in range between 0 and 3.");
+            this.rate = rate;
+            return this;
+        }
+
+       /** See {@link SensorHTS221#setBDU(boolean)}. */
+        public Builder setBDU(boolean enable){
+            bdu = enable;
+            return this;
+        }
+
+       /** See {@link SensorHTS221#setPower(boolean)}. */
+        public Builder setPower(boolean enable){
+            power = enable;
+            return this;
+        }
+
+       /** See {@link SensorHTS221#setDrDyOutput(boolean)}. */
+        public Builder setDrDyOutput(boolean high){
+            drdyHigh = high;
+            return this;
+        }
+
+       /** See {@link SensorHTS221#setPushPull(boolean)}. */
+        public Builder setPushPull(boolean enable){
+            pushPull = enable;
+            return this;
+        }
+
+        public ConfigHTS221 build(){
+            return new ConfigHTS221(this);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.IOException;
+import jdk.dio.DeviceConfig;
+import jdk.dio.DeviceManager;
+import jdk.dio.gpio.GPIOPin;
+import jdk.dio.gpio.GPIOPinConfig;
+import jdk.dio.gpio.PinEvent;
+import jdk.dio.gpio.PinListener;
+
+/**
+ * {@link InterruptLine} on a jdk.dio GPIO input pin.
+ *
+ * <p>Listener is called from the GPIO event thread.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class GPIOInterruptLine implements InterruptLine {
+    private final GPIOPin pin;
+
+   /** Opens the pin.
+    * @param controllerNumber GPIO controller (port) number.
+    * @param pinNumber GPIO pin number.
+    * @param activeHigh True - listen to rising edge, false - to falling edge.
+    * @throws IOException 
+    */
+    public GPIOInterruptLine(int controllerNumber, int pinNumber, boolean activeHigh) throws IOException{
+        GPIOPinConfig pinConf = new GPIOPinConfig.Builder()
+                        .setControllerNumber(controllerNumber)
+                        .setPinNumber(pinNumber)
+                        .setDirection(GPIOPinConfig.DIR_INPUT_ONLY)
+                        .setDriveMode(DeviceConfig.DEFAULT)
+                        .setTrigger(activeHigh ? GPIOPinConfig.TRIGGER_RISING_EDGE
+                                               : GPIOPinConfig.TRIGGER_FALLING_EDGE)
+                        .build();
+        pin = DeviceManager.open(pinConf);
+    }
+
+    @Override
+    public void setListener(final Runnable listener) throws IOException{
+        if (listener == null) {
+            pin.setInputListener(null);
+            return;
+        }
+        pin.setInputListener(new PinListener() {
+            @Override
+            public void valueChanged(PinEvent event) {
+                listener.run();
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException{
+        pin.close();
+    }
+}
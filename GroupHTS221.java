@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Group of one shot sensors sampled together.
+ *
+ * <p>Calling {@link SensorHTS221#oneShot()} on each sensor in turn makes
+ * every sensor wait its own conversion time. A sweep triggers one shot on
+ * every sensor first, waits once until the last conversion is expected to
+ * be done and then reads all results, one burst per sensor. Sweep time is
+ * about one conversion time plus bus transfer time, whatever the number
+ * of sensors.
+ * <p>Sensors must be powered on with ODR set to one shot.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class GroupHTS221 {
+    // in sweep order
+    private final List<SensorHTS221> sensors = new ArrayList<>();
+    // index given by add() for each position in sweep order
+    private final List<Integer> indexes = new ArrayList<>();
+
+    // duration of the last sweep, ns
+    private long lastSweep;
+
+    // how long to keep checking sensors whose conversion is late, ns
+    private static final long LATE_NANOS = 50_000_000;
+    // pauses between checks of late sensors
+    private final PollStrategy poll = PollStrategy.parking();
+
+   /** Adds a sensor.
+    * @param sensor Sensor to add.
+    * @return Index of the sensor, same as its index in results of {@link sweep(SensorHTS221.Args[])}.
+    */
+    public synchronized int add(SensorHTS221 sensor){
+        return add(sensor, sensors.size());
+    }
+
+   /** Adds a sensor at the given position in sweep order.
+    * <p>Triggers go in sweep order, reads in reverse order.
+    * @param sensor Sensor to add.
+    * @param position Position in sweep order.
+    * @return Index of the sensor.
+    */
+    synchronized int add(SensorHTS221 sensor, int position){
+        int index = sensors.size();
+        sensors.add(position, sensor);
+        indexes.add(position, index);
+        return index;
+    }
+
+   /** Returns number of sensors. */
+    public synchronized int size(){
+        return sensors.size();
+    }
+
+   /** Returns duration of the last sweep, ns. */
+    public synchronized long getLastSweepNanos(){
+        return lastSweep;
+    }
+
+   /** Takes one sample from every sensor.
+    * <p>A sensor whose conversion is not done when expected, e.g. because
+    * its internal oscillator runs slow, is checked again, with pauses
+    * between checks, for up to 50 ms. If it still has no data, its result
+    * gets err 5.
+    * @param results One per sensor, in index order. Check err of each.
+    * @return Number of sensors read successfully.
+    * @throws IOException
+    * @throws InterruptedException
+    */
+    public synchronized int sweep(SensorHTS221.Args[] results) throws IOException, InterruptedException{
+        int n = sensors.size();
+        long start = System.nanoTime();
+        long done = start;
+        for (int i = 0; i < n; i++) {
+            SensorHTS221 sensor = sensors.get(i);
+            sensor.trigger();
+            long expected = System.nanoTime() + sensor.getConversionNanos();
+            if (expected - done > 0) done = expected;
+        }
+
+        long wait = done - System.nanoTime();
+        if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+
+        int read = 0;
+        int late = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            SensorHTS221.Args args = results[indexes.get(i)];
+            if (sensors.get(i).getSample(args)) read++;
+            else if (args.err == 2) late++;
+        }
+
+        // check late conversions again until the deadline
+        long first = System.nanoTime();
+        long deadline = done + LATE_NANOS;
+        while (late > 0) {
+            long now = System.nanoTime();
+            if (deadline - now <= 0) {
+                for (int i = 0; i < n; i++) {
+                    SensorHTS221.Args args = results[indexes.get(i)];
+                    if (args.err == 2) {
+                        args.err = 5;
+                        args.msg = SensorHTS221.message(5);
+                    }
+                }
+                break;
+            }
+            poll.pause(now - first, deadline - now);
+            late = 0;
+            for (int i = n - 1; i >= 0; i--) {
+                SensorHTS221.Args args = results[indexes.get(i)];
+                if (args.err != 2) continue;
+                if (sensors.get(i).getSample(args)) read++;
+                else if (args.err == 2) late++;
+            }
+        }
+        lastSweep = System.nanoTime() - start;
+        return read;
+    }
+}
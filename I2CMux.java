@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * TCA9548A-style I2C multiplexer.
+ *
+ * <p>HTS221 has a fixed address, so several sensors on one bus have to be
+ * put behind a multiplexer, one sensor per channel. Every sensor is accessed
+ * through {@link channel(int)}, which selects the channel before each 
+ * transfer. The selected channel is remembered, so the select write is 
+ * only done when the channel actually changes.
+ * <p>Several multiplexers on one controller share a {@link MuxBus}: before
+ * a channel of this multiplexer is connected, the one used before is
+ * disconnected, so sensors on different multiplexers never answer together.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public abstract class I2CMux implements AutoCloseable {
+    private final int channels;
+    private final MuxBus bus;
+    // selected channel, -1 if none or unknown
+    private int selected = -1;
+    // number of control register writes
+    private long selects;
+
+   /** Constructs new instance of this class.
+    * @param channels Number of channels.
+    * @param bus Bus the multiplexer is on.
+    */
+    protected I2CMux(int channels, MuxBus bus){
+        this.channels = channels;
+        this.bus = bus;
+    }
+
+   /** Writes the control register of the multiplexer.
+    * @param value Bit n set - channel n connected.
+    * @throws IOException 
+    */
+    protected abstract void writeControl(int value) throws IOException;
+
+   /** Returns the bus the multiplexer is on. */
+    public MuxBus getBus(){
+        return bus;
+    }
+
+   /** Returns number of channels. */
+    public int channels(){
+        return channels;
+    }
+
+   /** Returns number of channel selects written so far. */
+    public long getSelects(){
+        synchronized (bus) {
+            return selects;
+        }
+    }
+
+   /** Connects the channel, if it is not connected yet.
+    * <p>Disconnects the multiplexer used before on the same bus first.
+    * @param channel Channel number.
+    * @throws IOException 
+    */
+    public void select(int channel) throws IOException{
+        synchronized (bus) {
+            I2CMux active = bus.active;
+            if (active != this && active != null) active.disconnect();
+            bus.active = this;
+            if (channel == selected) return;
+            if (channel < 0 || channel >= channels) throw new IllegalArgumentException("channel should be in range 0-" + (channels - 1));
+            selected = -1;  // unknown if the write fails
+            writeControl(1 << channel);
+            selects++;
+            selected = channel;
+        }
+    }
+
+    // Disconnects all channels. Called with the bus monitor held.
+    private void disconnect() throws IOException{
+        selected = -1;  // unknown if the write fails
+        writeControl(0);
+        selects++;
+        bus.active = null;
+    }
+
+   /** Returns the bus of a channel.
+    * <p>Pass it to {@link SensorHTS221#SensorHTS221(RegisterBus)}.
+    * Closing it does nothing, close the multiplexer instead.
+    * @param channel Channel number.
+    */
+    public RegisterBus channel(final int channel){
+        if (channel < 0 || channel >= channels) throw new IllegalArgumentException("channel should be in range 0-" + (channels - 1));
+        return new RegisterBus() {
+            @Override
+            public void open() throws IOException{
+                bus.target().open();
+            }
+
+            @Override
+            public int read(int subaddress, ByteBuffer dst) throws IOException{
+                synchronized (bus) {
+                    select(channel);
+                    return bus.target().read(subaddress, dst);
+                }
+            }
+
+            @Override
+            public int write(int subaddress, ByteBuffer src) throws IOException{
+                synchronized (bus) {
+                    select(channel);
+                    return bus.target().write(subaddress, src);
+                }
+            }
+
+            @Override
+            public void close(){
+                // shared, see I2CMux.close()
+            }
+        };
+    }
+
+   /** Disconnects the channels and closes the shared bus.
+    * <p>The bus is opened again by the next transfer through any
+    * multiplexer on it.
+    * @throws IOException 
+    */
+    @Override
+    public void close() throws IOException{
+        synchronized (bus) {
+            try {
+                if (bus.active == this) disconnect();
+            } finally {
+                selected = -1;
+                bus.target().close();
+            }
+        }
+    }
+}
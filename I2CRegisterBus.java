@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import jdk.dio.DeviceManager;
+import jdk.dio.i2cbus.I2CDevice;
+import jdk.dio.i2cbus.I2CDeviceConfig;
+
+/**
+ * {@link RegisterBus} on a jdk.dio I2C device.
+ *
+ * <p>The device is opened on first use and stays open until
+ * {@link close()}. If a transfer fails the device is reopened and the 
+ * transfer is retried once, so a single bus error doesn't leave a dead
+ * handle.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class I2CRegisterBus implements RegisterBus {
+    // Configuration.
+    // Contains information about device, its address on i2c bus
+    // and clock rate.
+    private final I2CDeviceConfig conf;
+    
+    // Device.
+    // Represents the device. Stays open between calls.
+    private I2CDevice dev;
+
+   /** Constructs new instance of this class.
+    * 
+    * @param controllerNumber Number of I2C Bus controller (usually 1).
+    * @param address 7-bit address of the device.
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    */
+    public I2CRegisterBus(int controllerNumber, int address, int clockFrequency){
+        conf = new I2CDeviceConfig.Builder()
+                        .setControllerNumber(controllerNumber) 
+                        .setAddress(address, I2CDeviceConfig.ADDR_SIZE_7)
+                        .setClockFrequency(clockFrequency)
+                        .build();
+    }
+
+    @Override
+    public void open() throws IOException{
+        if (dev == null || !dev.isOpen()) dev = DeviceManager.open(conf);
+    }
+
+    @Override
+    public void close() throws IOException{
+        if (dev == null) return;
+        try {
+            dev.close();
+        } finally {
+            dev = null;
+        }
+    }
+
+    @Override
+    public int read(int subaddress, ByteBuffer dst) throws IOException{
+        open();
+        int pos = dst.position();
+        try {
+            return dev.read(subaddress, 1, dst);
+        } catch (IOException e) {
+            reopen();
+            dst.position(pos);
+            return dev.read(subaddress, 1, dst);
+        }
+    }
+
+    @Override
+    public int write(int subaddress, ByteBuffer src) throws IOException{
+        open();
+        int pos = src.position();
+        try {
+            return dev.write(subaddress, 1, src);
+        } catch (IOException e) {
+            reopen();
+            src.position(pos);
+            return dev.write(subaddress, 1, src);
+        }
+    }
+    
+    private void reopen() throws IOException{
+        try {
+            close();
+        } catch (IOException e) {
+            // the handle is broken anyway
+        }
+        open();
+    }
+}
@@ -0,0 +1,24 @@
+import java.io.IOException;
+
+/**
+ * Interrupt output of a device, e.g. HTS221 DRDY pin.
+ *
+ * <p>See {@link GPIOInterruptLine} for the real pin and
+ * {@link SimulatedHTS221#getDataReadyLine()} for the simulated one.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public interface InterruptLine extends AutoCloseable {
+
+   /** Sets the action run when the line becomes active.
+    * @param listener Action, null to remove.
+    * @throws IOException 
+    */
+    void setListener(Runnable listener) throws IOException;
+
+   /** Releases the line.
+    * @throws IOException 
+    */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Owns many sensors and samples them with one worker thread per bus.
+ *
+ * <p>Sensors on different buses are read in parallel, sensors on the same
+ * bus one after another. Every sample is published in the sensor's
+ * {@link SampleSlot}, {@link snapshot(SampleSlot.Snapshot[])} copies all of
+ * them at once. Sensors must not be used directly while the manager is
+ * running.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class ManagerHTS221 {
+
+    // Sensors sharing a bus and the thread sampling them.
+    private final class Worker implements Runnable {
+        final int busNumber;
+        final List<Integer> members = new ArrayList<>();
+        Thread thread;
+
+        Worker(int busNumber){
+            this.busNumber = busNumber;
+        }
+
+        @Override
+        public void run(){
+            int n = members.size();
+            int[] indexes = new int[n];
+            for (int i = 0; i < n; i++) indexes[i] = members.get(i);
+            for (int i = 0; i < n; i++) {
+                SensorHTS221 sensor = sensors.get(indexes[i]);
+                try {
+                    if (!sensor.isCalibrationValidated()) sensor.validateCalibration();
+                } catch (IOException | RuntimeException e) {
+                    errors.incrementAndGet(indexes[i]);   // cached calibration stays in use
+                }
+            }
+
+            while (running) {
+                long start = System.currentTimeMillis();
+                for (int i = 0; i < n && running; i++) {
+                    int index = indexes[i];
+                    SensorHTS221 sensor = sensors.get(index);
+                    try {
+                        if (sensor.isOneShot()) sensor.oneShot();
+                        long raw = sensor.readRaw();
+                        if (SensorHTS221.rawError(raw) == 0) {
+                            slots.get(index).publish(sensor.toDegrees(SensorHTS221.rawTemperature(raw)),
+                                    sensor.toRH(SensorHTS221.rawHumidity(raw)), System.currentTimeMillis());
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // e.g. IllegalStateException for a sensor used directly,
+                        // the other sensors of the bus are still sampled
+                        errors.incrementAndGet(index);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                long left = period - (System.currentTimeMillis() - start);
+                if (left > 0) {
+                    try {
+                        Thread.sleep(left);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private final List<SensorHTS221> sensors = new ArrayList<>();
+    private final List<SampleSlot> slots = new ArrayList<>();
+    private final List<Worker> workers = new ArrayList<>();
+    // Copies for reading without the monitor, replaced by add().
+    private volatile SampleSlot[] slotArray = new SampleSlot[0];
+    private volatile AtomicLongArray errors = new AtomicLongArray(0);
+
+    private volatile boolean running;
+    // sampling period, ms
+    private long period;
+
+   /** Adds a sensor on its own I2C controller.
+    * @param controllerNumber Number of I2C Bus controller.
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    * @return Index of the sensor.
+    * @throws IOException
+    */
+    public int add(int controllerNumber, int clockFrequency) throws IOException{
+        return add(new SensorHTS221(controllerNumber, clockFrequency), controllerNumber);
+    }
+
+   /** Adds a sensor.
+    * <p>Sensors with the same bus number are sampled by the same thread.
+    * @param sensor Sensor, configured and powered on.
+    * @param busNumber Number of the bus the sensor is on.
+    * @return Index of the sensor.
+    */
+    public synchronized int add(SensorHTS221 sensor, int busNumber){
+        if (running) throw new IllegalStateException("Manager is running.");
+        Worker worker = null;
+        for (Worker w : workers) {
+            if (w.busNumber == busNumber) worker = w;
+        }
+        if (worker == null) {
+            worker = new Worker(busNumber);
+            workers.add(worker);
+        }
+        int index = sensors.size();
+        sensors.add(sensor);
+        slots.add(new SampleSlot());
+        worker.members.add(index);
+        slotArray = slots.toArray(new SampleSlot[index + 1]);
+        AtomicLongArray e = new AtomicLongArray(index + 1);
+        for (int i = 0; i < index; i++) e.set(i, errors.get(i));
+        errors = e;
+        return index;
+    }
+
+   /** Returns number of sensors. */
+    public synchronized int size(){
+        return sensors.size();
+    }
+
+   /** Returns number of buses, i.e. of worker threads. */
+    public synchronized int buses(){
+        return workers.size();
+    }
+
+   /** Returns the slot the sensor's samples are published in.
+    * @param index Index of the sensor.
+    */
+    public SampleSlot getSlot(int index){
+        return slotArray[index];
+    }
+
+   /** Returns number of reads of the sensor that failed.
+    * <p>Counts I/O errors and unexpected exceptions, such as
+    * {@link IllegalStateException} when the sensor is owned by a DRDY
+    * listener. The worker goes on with the next sensor either way.
+    * @param index Index of the sensor.
+    */
+    public long getErrors(int index){
+        return errors.get(index);
+    }
+
+   /** Copies latest samples of all sensors.
+    * <p>Takes no locks, doesn't wait for the workers, even while they are
+    * being stopped.
+    * @param snapshots Copies to fill, one per sensor, in index order.
+    * @return Number of sensors that have published at least one sample.
+    */
+    public int snapshot(SampleSlot.Snapshot[] snapshots){
+        SampleSlot[] s = slotArray;
+        int n = Math.min(snapshots.length, s.length);
+        int published = 0;
+        for (int i = 0; i < n; i++) {
+            if (s[i].read(snapshots[i])) published++;
+        }
+        return published;
+    }
+
+   /** Starts one worker thread per bus.
+    * <p>Every worker reads each of its sensors once per period. Sensors in
+    * one shot mode are triggered first, see {@link SensorHTS221#oneShot()}.
+    * @param periodMillis Sampling period, ms.
+    */
+    public synchronized void start(long periodMillis){
+        if (running) throw new IllegalStateException("Manager is running.");
+        period = periodMillis;
+        running = true;
+        for (Worker w : workers) {
+            w.thread = new Thread(w, "HTS221 bus " + w.busNumber);
+            w.thread.start();
+        }
+    }
+
+   /** Stops the worker threads and waits for them to finish.
+    * @throws InterruptedException
+    */
+    public synchronized void stop() throws InterruptedException{
+        if (!running) return;
+        running = false;
+        for (Worker w : workers) w.thread.interrupt();
+        for (Worker w : workers) {
+            w.thread.join();
+            w.thread = null;
+        }
+    }
+
+   /** Stops the workers and closes all sensors.
+    * @throws IOException
+    * @throws InterruptedException
+    */
+    public synchronized void close() throws IOException, InterruptedException{
+        stop();
+        for (SensorHTS221 s : sensors) s.close();
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Physical I2C bus shared by one or more multiplexers.
+ *
+ * <p>All sensors behind all multiplexers on the bus answer at the same
+ * address, so only one multiplexer may have a channel connected at a time.
+ * {@link I2CMux#select(int)} disconnects the multiplexer that was used last
+ * before connecting a channel of another one. Transfers through any
+ * multiplexer on the bus are serialized by the monitor of this object.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class MuxBus {
+    private final RegisterBus target;
+    // multiplexer which may have a channel connected, null if none
+    I2CMux active;
+
+   /** Constructs new instance of this class.
+    * @param target Bus at the address of the sensors, shared by all
+    * multiplexers and channels.
+    */
+    public MuxBus(RegisterBus target){
+        this.target = target;
+    }
+
+   /** Returns the bus at the address of the sensors.
+    * <p>Transfers on it go to the selected channel.
+    */
+    public RegisterBus target(){
+        return target;
+    }
+}
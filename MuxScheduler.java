@@ -0,0 +1,61 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Samples many one shot sensors behind multiplexers.
+ *
+ * <p>Sweeps like {@link GroupHTS221}, but sweep order follows multiplexer
+ * and channel: triggers go in ascending channel order and reads in
+ * descending order, so each channel is selected at most twice per sweep
+ * and the channel selected last by the triggers is read first without a
+ * select.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class MuxScheduler {
+    private final GroupHTS221 group = new GroupHTS221();
+    private final List<I2CMux> muxes = new ArrayList<>();
+    // order of the multiplexer and channel, in sweep order
+    private final List<Integer> keys = new ArrayList<>();
+
+   /** Adds a sensor.
+    * @param sensor Sensor, created with {@link SensorHTS221#SensorHTS221(I2CMux, int)}.
+    * @param mux Multiplexer the sensor is connected to.
+    * @param channel Channel of the multiplexer.
+    * @return Index of the sensor, same as its index in results of {@link sweep(SensorHTS221.Args[])}.
+    */
+    public synchronized int add(SensorHTS221 sensor, I2CMux mux, int channel){
+        int m = muxes.indexOf(mux);
+        if (m < 0) {
+            m = muxes.size();
+            muxes.add(mux);
+        }
+        int key = m << 8 | channel;
+        int position = keys.size();
+        while (position > 0 && keys.get(position - 1) > key) position--;
+        keys.add(position, key);
+        return group.add(sensor, position);
+    }
+
+   /** Returns number of sensors. */
+    public int size(){
+        return group.size();
+    }
+
+   /** Returns duration of the last sweep, ns. */
+    public long getLastSweepNanos(){
+        return group.getLastSweepNanos();
+    }
+
+   /** Takes one sample from every sensor.
+    * <p>See {@link GroupHTS221#sweep(SensorHTS221.Args[])}.
+    * @param results One per sensor, in index order. Check err of each.
+    * @return Number of sensors read successfully.
+    * @throws IOException
+    * @throws InterruptedException
+    */
+    public int sweep(SensorHTS221.Args[] results) throws IOException, InterruptedException{
+        return group.sweep(results);
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.IOException;
+
+/**
+ * Pipelined one shot sampling.
+ *
+ * <p>With plain one shot the sensor is idle while the caller processes a
+ * sample. Here every read initiates the next conversion right away, see
+ * {@link SensorHTS221#getSampleAndTrigger(SensorHTS221.Args)}, so the
+ * conversion overlaps with the caller's work. When the caller comes back
+ * the sample is usually ready, and it is only waited for if it is not.
+ * Sampling stays on demand: no conversion is done between the last
+ * read and the next one but the one already in flight.
+ * <p>Sensor must be powered on with ODR set to one shot.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class OneShotPipeline {
+    private final SensorHTS221 sensor;
+    // when the conversion in flight is expected to be done, System.nanoTime()
+    private long due;
+    private boolean started;
+
+   /** Constructs new pipeline.
+    * @param sensor Sensor to read.
+    */
+    public OneShotPipeline(SensorHTS221 sensor){
+        this.sensor = sensor;
+    }
+
+   /** Initiates the first conversion.
+    * <p>Called by {@link next(SensorHTS221.Args)} if needed.
+    * @throws IOException
+    */
+    public void start() throws IOException{
+        sensor.trigger();
+        due = System.nanoTime() + sensor.getConversionNanos();
+        started = true;
+    }
+
+   /** Gets the sample in flight and initiates the next one.
+    * <p>Waits for the conversion if it is not expected to be done yet, then
+    * checks for data every millisecond, 50 ms at most.
+    * @param args See {@link SensorHTS221.Args}.
+    * @return True, if try was successful. Check err of args otherwise.
+    * @throws IOException
+    * @throws InterruptedException
+    */
+    public boolean next(SensorHTS221.Args args) throws IOException, InterruptedException{
+        if (!started) start();
+        long wait = due - System.nanoTime();
+        if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        for (int i = 0; i < 50; i++) {
+            if (sensor.getSampleAndTrigger(args)) {
+                due = System.nanoTime() + sensor.getConversionNanos();
+                return true;
+            }
+            if (args.err != 2) break;
+            Thread.sleep(1);
+        }
+        started = false;    // the conversion got lost, start over next time
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How to wait between checks of STATUS_REG when DRDY is not used.
+ *
+ * <p>After a check finds no new data the waiting thread first spins, then
+ * yields, then parks, each tier for as long as configured. Park time
+ * starts at the minimum and doubles up to the maximum. Spinning answers
+ * fastest but burns CPU and bus bandwidth on checks, parking is the other
+ * way round.
+ * <p>The strategy counts checks and samples, so the checks wasted on
+ * waiting can be compared between strategies, see
+ * {@link getWastedPollsPerSample()}. Counters are not thread-safe, use
+ * one instance per reading thread.
+ * <p>Used by {@link SensorHTS221#read(SensorHTS221.Args, long, PollStrategy)}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class PollStrategy {
+    private final long spinNanos;
+    private final long yieldNanos;
+    private final long parkMinNanos;
+    private final long parkMaxNanos;
+
+    private long polls;
+    private long samples;
+
+   /** Constructs new strategy.
+    * @param spinNanos How long to spin after the first check, ns.
+    * @param yieldNanos How long to yield after spinning, ns.
+    * @param parkMinNanos First park time after yielding, ns.
+    * @param parkMaxNanos Park time limit, ns.
+    */
+    public PollStrategy(long spinNanos, long yieldNanos, long parkMinNanos, long parkMaxNanos){
+        if (spinNanos < 0 || yieldNanos < 0) throw new IllegalArgumentException("Tier durations should not be negative.");
+        if (parkMinNanos <= 0 || parkMaxNanos < parkMinNanos) throw new IllegalArgumentException("Park times should be positive, minimum not above maximum.");
+        this.spinNanos = spinNanos;
+        this.yieldNanos = yieldNanos;
+        this.parkMinNanos = parkMinNanos;
+        this.parkMaxNanos = parkMaxNanos;
+    }
+
+   /** Spins for 1 ms, then parks for 1 ms at a time. Lowest latency. */
+    public static PollStrategy spin(){
+        return new PollStrategy(1_000_000, 0, 1_000_000, 1_000_000);
+    }
+
+   /** Yields for 1 ms, then parks for 1 ms at a time. */
+    public static PollStrategy yielding(){
+        return new PollStrategy(0, 1_000_000, 1_000_000, 1_000_000);
+    }
+
+   /** Parks from 100 us up to 5 ms. Fewest checks. */
+    public static PollStrategy parking(){
+        return new PollStrategy(0, 0, 100_000, 5_000_000);
+    }
+
+   /** Spins for 50 us, yields for 200 us, then parks from 100 us up to 2 ms. */
+    public static PollStrategy adaptive(){
+        return new PollStrategy(50_000, 200_000, 100_000, 2_000_000);
+    }
+
+   /** Waits before the next check.
+    * @param sinceFirst Time since the first check for this sample, ns.
+    * @param left Time left until the deadline, ns. Not waited past.
+    * @throws InterruptedException
+    */
+    void pause(long sinceFirst, long left) throws InterruptedException{
+        if (sinceFirst < spinNanos) {
+            long end = System.nanoTime() + Math.min(left, 1_000);
+            while (System.nanoTime() - end < 0) {
+                // spin
+            }
+        } else if (sinceFirst < spinNanos + yieldNanos) {
+            Thread.yield();
+        } else {
+            long parked = sinceFirst - spinNanos - yieldNanos;
+            long park = parkMinNanos;
+            // double for every park done so far, parks are min, 2 min, 4 min...
+            while (park < parkMaxNanos && parked >= park) {
+                parked -= park;
+                park *= 2;
+            }
+            LockSupport.parkNanos(this, Math.min(Math.min(park, parkMaxNanos), left));
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    // Counts a check of STATUS_REG.
+    void polled(){
+        polls++;
+    }
+
+    // Counts a sample taken.
+    void sampled(){
+        samples++;
+    }
+
+   /** Returns number of STATUS_REG checks done. */
+    public long getPolls(){
+        return polls;
+    }
+
+   /** Returns number of samples taken. */
+    public long getSamples(){
+        return samples;
+    }
+
+   /** Returns average number of checks per sample that found no new data. */
+    public float getWastedPollsPerSample(){
+        return samples == 0 ? 0 : (float) (polls - samples) / samples;
+    }
+
+   /** Resets the counters. */
+    public void reset(){
+        polls = 0;
+        samples = 0;
+    }
+}
@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Register access to a device on a bus.
+ *
+ * <p>{@link SensorHTS221} does all its register I/O through this interface,
+ * so it can be driven either by real hardware ({@link I2CRegisterBus}) or by
+ * a model ({@link SimulatedHTS221}).
+ * <p>Subaddress is passed as is. For HTS221 setting its MSB (e.g. 0xA7
+ * instead of 0x27) enables auto-increment of register address, so
+ * several consecutive registers are transferred in one transaction.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public interface RegisterBus extends AutoCloseable {
+
+   /** Opens the bus session if it is not open yet.
+    * @throws IOException 
+    */
+    void open() throws IOException;
+
+   /** Reads registers starting at subaddress.
+    * <p>Fills dst from its position up to its limit.
+    * @param subaddress Register address.
+    * @param dst Buffer to read to.
+    * @return Number of bytes read.
+    * @throws IOException 
+    */
+    int read(int subaddress, ByteBuffer dst) throws IOException;
+
+   /** Writes registers starting at subaddress.
+    * <p>Writes dst from its position up to its limit.
+    * @param subaddress Register address.
+    * @param src Buffer to write from.
+    * @return Number of bytes written.
+    * @throws IOException 
+    */
+    int write(int subaddress, ByteBuffer src) throws IOException;
+
+   /** Closes the bus session.
+    * <p>Next read or write opens it again.
+    * @throws IOException 
+    */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,108 @@
+/**
+ * Fixed-capacity ring buffer of raw samples.
+ *
+ * <p>Keeps raw humidity and temperature outputs and timestamps in primitive
+ * arrays, nothing is allocated after construction. When the buffer is full
+ * the oldest sample is overwritten. Convert the values with
+ * {@link SensorHTS221#toDegrees(short)} and {@link SensorHTS221#toRH(short)},
+ * or whole drained arrays with their array overloads.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SampleRing {
+    private final short[] hum;
+    private final short[] temp;
+    private final long[] time;
+
+    // index of the oldest sample
+    private int head;
+    // number of samples stored
+    private int count;
+    // number of samples overwritten before anyone took them
+    private long lost;
+
+   /** Constructs new ring buffer.
+    * @param capacity Maximum number of samples kept.
+    */
+    public SampleRing(int capacity){
+        if (capacity < 1) throw new IllegalArgumentException("capacity should be positive");
+        hum = new short[capacity];
+        temp = new short[capacity];
+        time = new long[capacity];
+    }
+
+   /** Adds a sample, overwriting the oldest one if the buffer is full.
+    * @param humRaw Raw humidity output.
+    * @param tempRaw Raw temperature output.
+    * @param timestamp Time of acquisition, ms.
+    */
+    public synchronized void put(short humRaw, short tempRaw, long timestamp){
+        int capacity = hum.length;
+        int i = head + count;
+        if (i >= capacity) i -= capacity;
+        hum[i] = humRaw;
+        temp[i] = tempRaw;
+        time[i] = timestamp;
+        if (count < capacity) {
+            count++;
+        } else {
+            head = head + 1 == capacity ? 0 : head + 1;
+            lost++;
+        }
+    }
+
+   /** Copies the latest sample to the arrays at offset.
+    * <p>The sample stays in the buffer.
+    * @return False if the buffer is empty.
+    */
+    public synchronized boolean latest(short[] humRaw, short[] tempRaw, long[] timestamp, int offset){
+        if (count == 0) return false;
+        int i = head + count - 1;
+        if (i >= hum.length) i -= hum.length;
+        humRaw[offset] = hum[i];
+        tempRaw[offset] = temp[i];
+        timestamp[offset] = time[i];
+        return true;
+    }
+
+   /** Moves up to max oldest samples to the arrays starting at offset.
+    * @return Number of samples moved.
+    */
+    public synchronized int drain(short[] humRaw, short[] tempRaw, long[] timestamp, int offset, int max){
+        int n = Math.min(max, count);
+        int capacity = hum.length;
+        // at most two contiguous pieces: up to the end of the arrays and from the start
+        int first = Math.min(n, capacity - head);
+        System.arraycopy(hum, head, humRaw, offset, first);
+        System.arraycopy(temp, head, tempRaw, offset, first);
+        System.arraycopy(time, head, timestamp, offset, first);
+        System.arraycopy(hum, 0, humRaw, offset + first, n - first);
+        System.arraycopy(temp, 0, tempRaw, offset + first, n - first);
+        System.arraycopy(time, 0, timestamp, offset + first, n - first);
+        head += n;
+        if (head >= capacity) head -= capacity;
+        count -= n;
+        return n;
+    }
+
+   /** Returns number of samples stored. */
+    public synchronized int size(){
+        return count;
+    }
+
+   /** Returns maximum number of samples kept. */
+    public int capacity(){
+        return hum.length;
+    }
+
+   /** Returns number of samples overwritten before they were drained. */
+    public synchronized long lost(){
+        return lost;
+    }
+
+   /** Removes all samples. */
+    public synchronized void clear(){
+        head = 0;
+        count = 0;
+    }
+}
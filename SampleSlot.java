@@ -0,0 +1,90 @@
+/**
+ * Latest converted sample, published by one thread and read by many.
+ *
+ * <p>Protected by a sequence lock: the writer makes the sequence odd,
+ * writes the values and makes it even again. Readers retry if the
+ * sequence was odd or changed while they were copying, so they never
+ * block, take locks or allocate, and never see values from two
+ * different samples.
+ * <p>Only one thread may call {@link publish(float, float, long)}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SampleSlot {
+
+    /**
+     * Reader-owned copy of the slot, reused between reads.
+     */
+    public static final class Snapshot {
+
+        /**Temperature value.
+         *
+         */
+        public float Temperature;
+
+        /**Relative humidity value.
+         *
+         */
+        public float Humidity;
+
+        /**Time of acquisition, ms.
+         *
+         */
+        public long time;
+
+        /**Number of the sample, starting from 1.
+         *
+         */
+        public long sequence;
+    }
+
+    // Even - stable, odd - being written. Half of it is the sample number.
+    private volatile long seq;
+
+    private volatile float temperature;
+    private volatile float humidity;
+    private volatile long time;
+
+   /** Publishes a new sample.
+    * @param temperature Temperature value.
+    * @param humidity Relative humidity value.
+    * @param time Time of acquisition, ms.
+    */
+    public void publish(float temperature, float humidity, long time){
+        long s = seq;
+        seq = s + 1;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.time = time;
+        seq = s + 2;
+    }
+
+   /** Copies the latest sample.
+    * @param snapshot Copy to fill.
+    * @return False if nothing was published yet, snapshot is left as is then.
+    */
+    public boolean read(Snapshot snapshot){
+        while (true) {
+            long s1 = seq;
+            if ((s1 & 1) != 0) {
+                Thread.yield();     // writer is in the middle
+                continue;
+            }
+            if (s1 == 0) return false;
+            float t = temperature;
+            float h = humidity;
+            long ts = time;
+            if (seq != s1) continue;
+            snapshot.Temperature = t;
+            snapshot.Humidity = h;
+            snapshot.time = ts;
+            snapshot.sequence = s1 / 2;
+            return true;
+        }
+    }
+
+   /** Returns number of samples published so far. */
+    public long getSequence(){
+        return seq / 2;
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.IOException;
+
+/**
+ * Background acquisition engine for continuous ODR modes.
+ *
+ * <p>Runs a thread that reads every new sample from the sensor and puts
+ * raw values into a {@link SampleRing}. The latest sample is also converted
+ * and published in a {@link SampleSlot}, which any number of threads can
+ * read without locks. Consumers never touch the bus. While the sampler is
+ * running, the sensor must not be used by other threads.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SamplerHTS221 implements Runnable {
+    private final SensorHTS221 sensor;
+    private final SampleRing ring;
+    private final SampleSlot latest = new SampleSlot();
+
+    private Thread thread;
+    private volatile boolean running;
+    // sample period for the current ODR, ms
+    private long period;
+
+    // number of failed reads
+    private volatile long errors;
+    // exception that stopped the thread, null if none
+    private volatile RuntimeException failure;
+
+   /** Constructs new sampler.
+    * @param sensor Sensor to read.
+    * @param capacity Capacity of the ring buffer, samples.
+    */
+    public SamplerHTS221(SensorHTS221 sensor, int capacity){
+        this.sensor = sensor;
+        this.ring = new SampleRing(capacity);
+    }
+
+   /** Returns the ring buffer samples are put in. */
+    public SampleRing getRing(){
+        return ring;
+    }
+
+   /** Returns the slot the latest converted sample is published in. */
+    public SampleSlot getLatest(){
+        return latest;
+    }
+
+   /** Returns number of reads that failed with I/O error. */
+    public long getErrors(){
+        return errors;
+    }
+
+   /** Returns the unexpected exception that stopped the thread.
+    * <p>The thread stops on anything but I/O errors, e.g. on
+    * {@link IllegalStateException} when the sensor is owned by a DRDY
+    * listener, and {@link isRunning()} returns false from then on.
+    * Cleared by {@link start(int)}.
+    * @return The exception, null if none.
+    */
+    public RuntimeException getFailure(){
+        return failure;
+    }
+
+   /** Configures the sensor for continuous mode and starts the thread.
+    * <p>Sets ODR, BDU and power bits.
+    * @param rate ODR value in 1-3, see {@link SensorHTS221#setODR(int)}.
+    * @throws IOException
+    */
+    public synchronized void start(int rate) throws IOException{
+        if (rate < 1 || rate > 3) throw new IllegalArgumentException("rate should be in range 1-3");
+        if (running) throw new IllegalStateException("Sampler is already running.");
+
+        switch (rate) {
+            case 1: period = 1000; break;
+            case 2: period = 143; break;  // 7 Hz
+            default: period = 80;         // 12.5 Hz
+        }
+        sensor.setBDU(true);
+        sensor.setODR(rate);
+        sensor.setPower(true);
+
+        failure = null;
+        running = true;
+        thread = new Thread(this, "HTS221 sampler");
+        thread.start();
+    }
+
+   /** Stops the thread and waits for it to finish.
+    * <p>Sensor configuration is left as is.
+    * @throws InterruptedException
+    */
+    public synchronized void stop() throws InterruptedException{
+        if (!running) return;
+        running = false;
+        thread.interrupt();
+        thread.join();
+        thread = null;
+    }
+
+   /** Returns true if the thread is running, see {@link getFailure()}. */
+    public boolean isRunning(){
+        return running;
+    }
+
+    @Override
+    public void run(){
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            running = false;
+        }
+    }
+
+    // Reads samples until stopped.
+    private void sample(){
+        // check for new data a few times per period, so a sample waits
+        // in the output registers for a quarter of period at most
+        long poll = Math.max(period / 4, 1);
+        if (!sensor.isCalibrationValidated()) {
+            try {
+                sensor.validateCalibration();
+            } catch (IOException e) {
+                errors++;   // cached calibration stays in use
+            }
+        }
+        while (running) {
+            try {
+                long raw = sensor.readRaw();
+                if (SensorHTS221.rawError(raw) == 0) {
+                    long time = System.currentTimeMillis();
+                    short hum = SensorHTS221.rawHumidity(raw);
+                    short temp = SensorHTS221.rawTemperature(raw);
+                    ring.put(hum, temp, time);
+                    latest.publish(sensor.toDegrees(temp), sensor.toRH(hum), time);
+                    Thread.sleep(period - poll);  // next sample is not there before that
+                } else {
+                    Thread.sleep(poll);
+                }
+            } catch (IOException e) {
+                errors++;
+                try {
+                    Thread.sleep(period);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+}
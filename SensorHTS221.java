@@ -1,23 +1,40 @@
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import jdk.dio.DeviceManager;
-import jdk.dio.i2cbus.I2CDevice;
-import jdk.dio.i2cbus.I2CDeviceConfig;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  *
  * @author Leonid Burdikov loebrud@icloud.com
  */
-public class SensorHTS221 {
-    // Configuration.
-    // Contains information about sensor, its address on i2c bus
-    // and clock rate.
-    private final I2CDeviceConfig conf;
+public class SensorHTS221 implements AutoCloseable {
+    // Bus.
+    // All register access goes through it. Stays open between calls,
+    // see open() and close().
+    private final RegisterBus bus;
     
-    // Device.
-    // Represents the device.
-    private I2CDevice dev;
+    // Content of calibration registers 0x30-0x3F, as decoded.
+    private final byte[] calibration = new byte[16];
+    // Where calibration is kept between runs and the key of this sensor there, null if not cached.
+    private final CalibrationCache cache;
+    private final String cacheKey;
+    // false if calibration was taken from the cache and not compared with the device yet
+    private volatile boolean calibrationValidated;
+    // last failure to write the cache entry, null if none
+    private volatile IOException cacheError;
     
     // Calibration values
     private float H0_rH;
@@ -29,6 +46,57 @@ public class SensorHTS221 {
     private short T0_OUT;
     private short T1_OUT;
     
+    // Conversion coefficients, computed once from calibration values.
+    // value = raw * slope + offset
+    private float T_slope;
+    private float T_offset;
+    private float H_slope;
+    private float H_offset;
+    // The same coefficients in Q16.16 fixed point, scaled by 100,
+    // so the result is in hundredths of degree / %rH.
+    private int T_slope_q;
+    private int T_offset_q;
+    private int H_slope_q;
+    private int H_offset_q;
+    
+    // Shadow copies of control registers.
+    // Setters change these and write them to the device without reading
+    // the register first. Refreshed from the device by resync().
+    private byte AV_CONF;
+    private byte CTRL_REG1;
+    private byte CTRL_REG2;
+    private byte CTRL_REG3;
+    
+    // Transfer buffers.
+    // Allocated once and reused by every call, direct allocation is slow
+    // and would produce garbage on each sample otherwise.
+    private final ByteBuffer regBuf = ByteBuffer.allocateDirect(1);   // single register
+    private final ByteBuffer burstBuf = ByteBuffer.allocateDirect(16) // auto-increment bursts
+                                                  .order(ByteOrder.LITTLE_ENDIAN);
+    
+    // Line the DRDY output is wired to, null if data ready listener is not set.
+    // While it is set, only the reader thread may access the bus.
+    private volatile InterruptLine drdyLine;
+    
+    // Runs asynchronous reads and data ready reads, created on first use.
+    private ScheduledThreadPoolExecutor scheduler;
+    // Thread of the scheduler.
+    private volatile Thread reader;
+    // Futures of asynchronous reads not completed yet, failed by close().
+    private final Set<CompletableFuture<Sample>> pending =
+            Collections.newSetFromMap(new ConcurrentHashMap<CompletableFuture<Sample>, Boolean>());
+    
+    // Timing of the last init(), null before it completes.
+    private Startup startup;
+    
+    // Used by read(Args, long).
+    private final PollStrategy defaultPoll = PollStrategy.parking();
+    // When read(Args, long, PollStrategy) took the last sample, System.nanoTime(), 0 if never.
+    private long lastSample;
+    
+    // whether the sensor is owned by SharedHTS221, which runs all operations on its own thread
+    private volatile boolean shared;
+    
     // whether the device is powered on
     private boolean powered;
     // whether the device ODR set to oneshot
@@ -40,14 +108,42 @@ public class SensorHTS221 {
     * @param clockFrequency Either 100000 or 400000 Hz.
     */
     SensorHTS221(int controllerNumber, int clockFrequency) throws IOException {
-        conf = new I2CDeviceConfig.Builder()
-                        .setControllerNumber(controllerNumber) 
-                        .setAddress(0xBE / 2, I2CDeviceConfig.ADDR_SIZE_7)
-                        .setClockFrequency(clockFrequency)
-                        .build();
+        this(new I2CRegisterBus(controllerNumber, 0xBE / 2, clockFrequency));
+    }
+    
+   /** Constructs new instance of this class on the given bus.
+    * <p>Use it with {@link SimulatedHTS221} to run without the board.
+    * @param bus Bus the sensor is accessed through.
+    */
+    SensorHTS221(RegisterBus bus) throws IOException {
+        this(bus, null, null);
+    }
+    
+   /** Constructs new instance of this class, taking calibration from the cache.
+    * @param controllerNumber Number of I2C Bus controller (usually 1).
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    * @param cache Cache of calibration, see {@link CalibrationCache}.
+    */
+    SensorHTS221(int controllerNumber, int clockFrequency, CalibrationCache cache) throws IOException {
+        this(new I2CRegisterBus(controllerNumber, 0xBE / 2, clockFrequency), cache, CalibrationCache.key(controllerNumber));
+    }
+    
+   /** Constructs new instance of this class on the given bus, taking
+    * calibration from the cache.
+    * <p>If the cache has an entry for the key, calibration registers are not
+    * read, call {@link validateCalibration()} later to check the entry.
+    * Otherwise they are read and the entry is stored.
+    * @param bus Bus the sensor is accessed through.
+    * @param cache Cache of calibration, null to always read it.
+    * @param cacheKey Key of the sensor in the cache, unique per bus.
+    */
+    SensorHTS221(RegisterBus bus, CalibrationCache cache, String cacheKey) throws IOException {
+        this.bus = bus;
+        this.cache = cache;
+        this.cacheKey = cacheKey;
         oneshot = true;
         powered = false;
-        getCalibrationValues();
+        init();
     }
     
    /** Constructs new instance of this class.
@@ -56,22 +152,237 @@ public class SensorHTS221 {
     SensorHTS221() throws IOException{
         this(1,100000);
     }
+    
+   /** Constructs new instance of this class behind a multiplexer.
+    * @param mux Multiplexer the sensor is connected to.
+    * @param channel Channel of the multiplexer.
+    */
+    SensorHTS221(I2CMux mux, int channel) throws IOException {
+        this(mux.channel(channel));
+    }
+    
+   /** Opens the device session.
+    * <p>The session stays open until {@link close()} is called, so register
+    * access doesn't pay for opening the device every time. Any other
+    * method opens the session by itself if needed, so calling this is only
+    * useful to take the cost of opening up front.
+    * @throws IOException 
+    */
+    public void open() throws IOException{
+        bus.open();
+    }
+    
+   /** Closes the device session.
+    * <p>The instance is still usable afterwards, next register access will
+    * open the session again.
+    * Data ready listener, if set, is removed. A read in progress on the
+    * reader thread is waited for, unless close is called from that thread,
+    * futures of asynchronous reads not completed yet complete
+    * exceptionally with IOException.
+    * @throws IOException 
+    */
+    @Override
+    public void close() throws IOException{
+        if (drdyLine != null) removeDataReadyListener();
+        ScheduledThreadPoolExecutor executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdown();    // scheduled checks are dropped, reads queued fail
+            if (Thread.currentThread() != reader) awaitTermination(executor);
+        }
+        for (CompletableFuture<Sample> future : pending) {
+            future.completeExceptionally(new IOException("Sensor closed."));
+        }
+        bus.close();
+    }
+    
+    // Waits for the executor to finish the task in progress, ignoring interrupts.
+    private static void awaitTermination(ScheduledThreadPoolExecutor executor){
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+    
+    // Throws if a data ready listener is set and the caller is not the reader thread.
+    private void checkOwner(){
+        if (drdyLine != null && Thread.currentThread() != reader) {
+            throw new IllegalStateException("Data ready listener owns the sensor, remove it first.");
+        }
+    }
+    
+    // Reads a single register.
+    private byte readRegister(int subaddress) throws IOException{
+        checkOwner();
+        regBuf.clear();
+        bus.read(subaddress, regBuf);
+        return regBuf.get(0);
+    }
+    
+    // Writes a single register.
+    private void writeRegister(int subaddress, byte value) throws IOException{
+        checkOwner();
+        regBuf.clear();
+        regBuf.put(0, value);
+        bus.write(subaddress, regBuf);
+    }
+    
+    // Writes length bytes from burstBuf starting at subaddress.
+    private void writeBurst(int subaddress, int length) throws IOException{
+        checkOwner();
+        burstBuf.position(0);
+        burstBuf.limit(length);
+        bus.write(subaddress, burstBuf);
+    }
+    
+    // Reads length bytes starting at subaddress into burstBuf.
+    // Returns the number of bytes read.
+    private int readBurst(int subaddress, int length) throws IOException{
+        checkOwner();
+        burstBuf.clear();
+        burstBuf.limit(length);
+        return bus.read(subaddress, burstBuf);
+    }
+    
+   /** Refreshes the shadow copies of AV_CONF and CTRL_REG1-3 from the device.
+    * <p>Setters don't read control registers, they rely on the shadow copies.
+    * Call this if the registers could have been changed behind the driver's
+    * back, e.g. the sensor was reset externally. Called by {@link reboot()},
+    * the constructor does the same in {@link init()}.
+    * @throws IOException 
+    */
+    public void resync() throws IOException{
+        loadControl(readRegister(0x10));    // AV_CONF
+    }
+    
+   /** Brings the sensor up: verifies WHO_AM_I, reads calibration and
+    * control registers.
+    * <p>Takes three bursts: WHO_AM_I with AV_CONF (0x0F-0x10), the
+    * calibration block (0x30-0x3F) and CTRL_REG1-3 (0x20-0x22). Registers
+    * between them are not read, as reading the output registers would
+    * clear the data available bits. With a {@link CalibrationCache} entry
+    * the calibration block is taken from the cache instead. Called by the
+    * constructor, time of each phase is kept, see {@link getStartup()}.
+    * <p>If WHO_AM_I is not 0xBC, the sensor is rebooted once, as
+    * {@link reboot()} does, and WHO_AM_I is checked again.
+    * <p>If any phase fails, the bus session is closed before the exception
+    * is thrown, so a constructor that fails leaves no device open. Failure
+    * to store calibration in the cache is not one, see {@link getCacheError()}.
+    * @return Timing of the phases.
+    * @throws IOException If the bus fails, BOOT does not clear or WHO_AM_I
+    * is still not 0xBC after the reboot.
+    */
+    public Startup init() throws IOException{
+        try {
+            return bringUp();
+        } catch (IOException | RuntimeException e) {
+            // the constructor throws, nobody could close the device later
+            try {
+                bus.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+    
+    // Phases of init().
+    private Startup bringUp() throws IOException{
+        long start = System.nanoTime();
+        bus.open();
+        long opened = System.nanoTime();
+        
+        readBurst(0x8F, 2);                 // 0x0F with auto-increment bit: WHO_AM_I, AV_CONF
+        byte who = burstBuf.get(0);
+        byte av = burstBuf.get(1);
+        boolean rebooted = false;
+        if (who != (byte) 0xBC) {
+            boot();
+            rebooted = true;
+            readBurst(0x8F, 2);
+            who = burstBuf.get(0);
+            av = burstBuf.get(1);
+            if (who != (byte) 0xBC) {
+                throw new IOException(String.format("WHO_AM_I is 0x%02X instead of 0xBC after reboot.", who & 0xFF));
+            }
+        }
+        long identified = System.nanoTime();
+        
+        boolean cached = cache != null && cache.get(cacheKey, calibration);
+        if (cached) {
+            decodeCalibration();
+            calibrationValidated = false;
+        } else {
+            getCalibrationValues();
+            calibrationValidated = true;
+            storeCalibration();
+        }
+        long calibrated = System.nanoTime();
         
+        loadControl(av);
+        long end = System.nanoTime();
+        
+        startup = new Startup(who, rebooted, cached, opened - start, identified - opened, calibrated - identified, end - calibrated);
+        return startup;
+    }
+    
+   /** Returns timing of the last {@link init()}, done by the constructor. */
+    public Startup getStartup(){
+        return startup;
+    }
+    
+    // Sets BOOT bit and waits for it to clear, 100 ms at most.
+    private void boot() throws IOException{
+        writeRegister(0x21, (byte) (CTRL_REG2 | 0b1000_0000));
+        try {
+            waitForClear(0b1000_0000, 100, "BOOT");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for reboot.");
+        }
+    }
+    
+    // Reads CTRL_REG1-3 and sets the shadow copies, av is content of AV_CONF.
+    private void loadControl(byte av) throws IOException{
+        readBurst(0xA0, 3);                 // CTRL_REG1-3 in one go, 0x20 with auto-increment bit
+        
+        AV_CONF = (byte) (av & 0b0011_1111);                // reserved bits cleared
+        CTRL_REG1 = (byte) (burstBuf.get(0) & 0b1000_0111);
+        CTRL_REG2 = (byte) (burstBuf.get(1) & 0b0000_0010); // BOOT and ONE_SHOT clear by themselves, not kept
+        CTRL_REG3 = (byte) (burstBuf.get(2) & 0b1100_0100);
+        
+        powered = (CTRL_REG1 & 0b1000_0000) != 0;
+        oneshot = (CTRL_REG1 & 0b0000_0011) == 0;
+    }
+    
+   /** Returns true if the power bit is set to 1.
+    */
+    public boolean isPowered(){
+        return powered;
+    }
+    
+   /** Returns true if ODR is set to one shot.
+    */
+    public boolean isOneShot(){
+        return oneshot;
+    }
+    
    /** Returns the content of WHO_AM_I register.
-    * <p>It must contain value -68 (0xBE). If it's not, use {@link reboot()}.
+    * <p>It must contain value -68 (0xBC). If it's not, use {@link reboot()}.
+    * The constructor does it once by itself, see {@link init()}.
     * @return value of WHO_AM_I register.
     * @throws IOException 
     */
     public byte whoAmI() throws IOException{
-        dev = DeviceManager.open(conf);
-        
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        
-        dev.read(0x0F, 1, buf); // 0x0F - WHO_AM_I register
-        dev.close();
-
-        buf.rewind();
-        return buf.get();
+        return readRegister(0x0F); // 0x0F - WHO_AM_I register
     }
     
    /** Humidity and temperature resolution mode.
@@ -98,16 +409,9 @@ public class SensorHTS221 {
         if (rateTemp < 0 || rateTemp > 7) throw new IllegalArgumentException("rateTemp should be in range 0-7");
         if (rateHum < 0 || rateHum > 7) throw new IllegalArgumentException("rateHum should be in range 0-7");
         
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        
-        dev = DeviceManager.open(conf);
-        dev.read(0x10,1,buf);
-        byte reg = buf.get(0);
-        reg = (byte) (reg & 0b1100_0000 | (rateTemp << 3) | rateHum);
-        buf.put(0, reg);
-        buf.rewind();
-        dev.write(0x10,1,buf);
-        dev.close();
+        byte reg = (byte) (AV_CONF & 0b1100_0000 | (rateTemp << 3) | rateHum);
+        writeRegister(0x10, reg);
+        AV_CONF = reg;
     }
     
    /** Sets temperature resolution mode.
@@ -118,16 +422,9 @@ public class SensorHTS221 {
     public void setAVGT(int rateTemp) throws IOException{
         if (rateTemp < 0 || rateTemp > 7) throw new IllegalArgumentException("rateTemp should be in range 0-7");
         
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        
-        dev = DeviceManager.open(conf);
-        dev.read(0x10,1,buf);
-        byte reg = buf.get(0);
-        reg = (byte) (reg & 0b1100_0111 | (rateTemp << 3));
-        buf.put(0,reg);
-        buf.rewind();
-        dev.write(0x10,1,buf);
-        dev.close();
+        byte reg = (byte) (AV_CONF & 0b1100_0111 | (rateTemp << 3));
+        writeRegister(0x10, reg);
+        AV_CONF = reg;
     }
    
    /** Sets humidity resolution mode.
@@ -138,16 +435,9 @@ public class SensorHTS221 {
     public void setAVGH(int rateHum) throws IOException{
         if (rateHum < 0 || rateHum > 7) throw new IllegalArgumentException("rateHum should be in range 0-7");
         
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        
-        dev = DeviceManager.open(conf);
-        dev.read(0x10,1,buf);
-        byte reg = buf.get(0);
-        reg = (byte) (reg & 0b1111_1000 | rateHum);
-        buf.put(0,reg);
-        buf.rewind();
-        dev.write(0x10,1,buf);
-        dev.close();
+        byte reg = (byte) (AV_CONF & 0b1111_1000 | rateHum);
+        writeRegister(0x10, reg);
+        AV_CONF = reg;
     }
     
    /** Sets the PD bit to desired value.
@@ -159,15 +449,10 @@ public class SensorHTS221 {
     * <p>Device must be turned on in order to get samples.
     */
     public void setPower(boolean enable) throws IOException{
-        dev = DeviceManager.open(conf);                 // get channel open
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);  // prepare buffer
-        dev.read(0x20,1,buf);                           // read the value of the register to the buffer
-        byte reg = buf.get(0);                          // get it from buffer
+        byte reg = CTRL_REG1;                           // take the shadow copy
         if (enable) reg |= 0b1000_0000; else reg &= 0b0111_1111; // change it
-        buf.put(0, reg);                                // put it back to buffer
-        buf.rewind();
-        dev.write(0x20,1,buf);                          // write it to the register
-        dev.close();                                    // close the channel
+        writeRegister(0x20, reg);                       // write it to the register
+        CTRL_REG1 = reg;                                // update the shadow
         powered = enable;                               // remember the state
     }
     
@@ -183,15 +468,10 @@ public class SensorHTS221 {
     * <p>This feature prevents the reading of LSB and MSB related to different samples.
     */
     public void setBDU(boolean enable) throws IOException{
-        dev = DeviceManager.open(conf);                 // get channel open
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);  // prepare buffer
-        dev.read(0x20,1,buf);                           // read the value of the register to the buffer
-        byte reg = buf.get(0);                          // get it from buffer
+        byte reg = CTRL_REG1;                           // take the shadow copy
         if (enable) reg |= 0b0000_0100; else reg &= 0b1111_1011; // change it
-        buf.put(0, reg);                                // put it back to buffer
-        buf.rewind();
-        dev.write(0x20,1,buf);                          // write it to the register
-        dev.close();                                    // close the channel
+        writeRegister(0x20, reg);                       // write it to the register
+        CTRL_REG1 = reg;                                // update the shadow
     }
    
    /** Sets ODR bits to desired value.
@@ -211,21 +491,13 @@ public class SensorHTS221 {
         if (rate < 0 || rate > 3) throw new IllegalArgumentException("Argument "
                 + "should be in range between 0 and 3.");
         
-        dev = DeviceManager.open(conf);
-        
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        
-        dev.read(0x20,1,buf); // 0x20 - CTRL_REG1
-        byte reg = buf.get(0);
+        byte reg = CTRL_REG1;
         reg &= 0b1111_1100; //  Zero and first bits - ODR bits. Cleared.
         reg |= rate; // Set to desired value.
-        buf.put(0, reg);
-        buf.rewind();
-        dev.write(0x20,1,buf);
+        writeRegister(0x20, reg); // 0x20 - CTRL_REG1
+        CTRL_REG1 = reg;
         
         oneshot = rate == 0;
-        
-        dev.close();
     }
     
    /** Sets the BOOT bit to 1.
@@ -239,24 +511,19 @@ public class SensorHTS221 {
     * the device. These values are factory trimmed and are different for every device. They permit
     * good behavior of the device and normally they should not be changed. At the end of the
     * boot process, the BOOT bit is set again to ‘0’.
+    * 
+    * <p>Waits for the BOOT bit to clear, 100 ms at most, then validates
+    * calibration and refreshes the shadow registers.
+    * @throws IOException If the bus fails or BOOT is still set after
+    * 100 ms, calibration and shadow registers are left as they were then.
+    * @throws InterruptedException
     */
     public void reboot() throws IOException, InterruptedException {
-        dev = DeviceManager.open(conf);
-        
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        
-        dev.read(0x21,1,buf);
+        writeRegister(0x21, (byte) (CTRL_REG2 | 0b1000_0000));
         
-        byte reg = buf.get(0);
-        reg |= 0b1000_0000;
-        buf.put(0,reg);
-        buf.rewind();
-        
-        dev.write(0x21,1,buf);
-        
-        dev.close();
-        Thread.sleep(100);
-        getCalibrationValues();
+        waitForClear(0b1000_0000, 100, "BOOT");
+        validateCalibration();
+        resync();
     }
 
    /**Sets the Heater bit to the desired value.
@@ -271,15 +538,10 @@ public class SensorHTS221 {
     * @throws IOException 
     */
     public void setHeater(boolean enable) throws IOException{
-        dev = DeviceManager.open(conf);                 // get channel open
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);  // prepare buffer
-        dev.read(0x21,1,buf);                           // read the value of the register to the buffer
-        byte reg = buf.get(0);                          // get it from buffer
+        byte reg = CTRL_REG2;                           // take the shadow copy
         if (enable) reg |= 0b0000_0010; else reg &= 0b1111_1101; // change it
-        buf.put(0,reg);                                 // put it back to buffer
-        buf.rewind();
-        dev.write(0x21,1,buf);                          // write it to the register
-        dev.close();                                    // close the channel
+        writeRegister(0x21, reg);                       // write it to the register
+        CTRL_REG2 = reg;                                // update the shadow
     }
     
     /**Initiates "One shot" procedure.
@@ -289,20 +551,61 @@ public class SensorHTS221 {
      * <p>Use this to get data when the ODR is set to "One shot" and only if
      * you are using boolean-returning get method. You don't need to initiate
      * one shot manually when you are using value-returnig get method.
-     * @throws IOException
+     * <p>Sleeps for the conversion time expected for current averaging 
+     * settings, see {@link conversionNanos(int)}, then checks the ONE_SHOT
+     * bit until the device clears it, 50 ms at most.
+     * @throws IOException If the bus fails or ONE_SHOT is still set after
+     * 50 ms, i.e. the conversion has not finished.
      * @throws InterruptedException
      */
     public void oneShot() throws IOException, InterruptedException{
-        dev = DeviceManager.open(conf);
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        dev.read(0x21,1,buf);
-        byte reg = buf.get(0);
-        reg |= 0b0000_0001;
-        buf.put(0, reg);
-        buf.rewind();
-        dev.write(0x21,1,buf);
-        dev.close();
-        Thread.sleep(50);
+        trigger();
+        long nanos = conversionNanos(AV_CONF);
+        Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        waitForClear(0b0000_0001, 50, "ONE_SHOT");
+    }
+    
+    /**Sets the ONE_SHOT bit without waiting for the conversion.
+     *
+     * <p>Lets several sensors convert at the same time: trigger all of them,
+     * wait for the longest {@link getConversionNanos()}, then read all.
+     * @throws IOException
+     */
+    public void trigger() throws IOException{
+        writeRegister(0x21, (byte) (CTRL_REG2 | 0b0000_0001));
+    }
+    
+    /**Returns expected conversion time for current averaging settings.
+     * @return Conversion time, ns.
+     */
+    public long getConversionNanos(){
+        return conversionNanos(AV_CONF);
+    }
+    
+    /**Returns expected conversion time for the given averaging settings.
+     *
+     * <p>Model: 1 ms of fixed overhead plus 25 us for every internal 
+     * temperature and humidity sample, see {@link setAVG(int, int)}. 
+     * Default averaging (16 and 32 samples) gives 2.2 ms, maximum
+     * (256 and 512 samples) gives 20.2 ms.
+     * @param avConf AV_CONF register content.
+     * @return Conversion time, ns.
+     */
+    public static long conversionNanos(int avConf){
+        int samplesT = 2 << ((avConf >> 3) & 0b111);
+        int samplesH = 4 << (avConf & 0b111);
+        return 1_000_000L + (samplesT + samplesH) * 25_000L;
+    }
+    
+    // Reads CTRL_REG2 every millisecond until bits of mask are cleared
+    // by the device. Throws if they are still set after timeout ms,
+    // name is the name of the bits for the message.
+    private void waitForClear(int mask, int timeout, String name) throws IOException, InterruptedException{
+        for (int i = 0; ; i++) {
+            if ((readRegister(0x21) & mask) == 0) return;
+            if (i >= timeout) throw new IOException(name + " bit is still set after " + timeout + " ms.");
+            Thread.sleep(1);
+        }
     }
     
     /**Set the selection mode on pin 3.
@@ -312,14 +615,10 @@ public class SensorHTS221 {
      * @throws IOException
      */
     public void setPushPull(boolean enable) throws IOException{
-        dev = DeviceManager.open(conf);                 // get channel open
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);  // prepare buffer
-        dev.read(0x22,1,buf);                           // read the value of the register to the buffer
-        byte reg = buf.get(0);                          // get it from buffer
+        byte reg = CTRL_REG3;                           // take the shadow copy
         if (enable) reg |= 0b0100_0000; else reg &= 0b1011_1111; // change it
-        buf.put(0, reg);                                // put it back to buffer
-        dev.write(0x22,1,buf);                          // write it to the register
-        dev.close();                                    // close the channel
+        writeRegister(0x22, reg);                       // write it to the register
+        CTRL_REG3 = reg;                                // update the shadow
     }
     
     /**Data ready output signal.
@@ -329,55 +628,378 @@ public class SensorHTS221 {
      * @throws IOException
      */
     public void setDrDyOutput(boolean high) throws IOException{
-        dev = DeviceManager.open(conf);                 // get channel open
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);  // prepare buffer
-        dev.read(0x22,1,buf);                           // read the value of the register to the buffer
-        byte reg = buf.get(0);                          // get it from buffer
+        byte reg = CTRL_REG3;                           // take the shadow copy
         if (high) reg &= 0b0111_1111; else reg |= 0b1000_0000; // change it
-        buf.put(0, reg);                                // put it back to buffer
-        dev.write(0x22,1,buf);                          // write it to the register
-        dev.close();                                    // close the channel
+        writeRegister(0x22, reg);                       // write it to the register
+        CTRL_REG3 = reg;                                // update the shadow
     }
     
-    private void getCalibrationValues() throws IOException{
-        ByteBuffer buf = ByteBuffer.allocateDirect(16);
+    /**Applies the whole configuration at once.
+     *
+     * <p>Only registers whose content changes are written. CTRL_REG1 and
+     * CTRL_REG3 are written in one auto-increment transaction if both
+     * change, so bringing the sensor up takes two transactions at most.
+     * DRDY_EN bit is left as is, see {@link setDataReadyListener(int, int, DataReadyListener)}.
+     * @param config See {@link ConfigHTS221}.
+     * @throws IOException
+     */
+    public void apply(ConfigHTS221 config) throws IOException{
+        byte av = config.avConf();
+        byte reg1 = config.ctrlReg1();
+        byte reg3 = (byte) (config.ctrlReg3() | CTRL_REG3 & 0b0000_0100);
+        
+        if (av != AV_CONF) {
+            writeRegister(0x10, av);
+            AV_CONF = av;
+        }
+        
+        boolean reg1Changed = reg1 != CTRL_REG1;
+        boolean reg3Changed = reg3 != CTRL_REG3;
+        if (reg1Changed && reg3Changed) {
+            burstBuf.put(0, reg1);
+            burstBuf.put(1, CTRL_REG2);         // unchanged, no BOOT or ONE_SHOT in the shadow
+            burstBuf.put(2, reg3);
+            writeBurst(0xA0, 3);                // 0x20 with auto-increment bit
+        } else if (reg1Changed) {
+            writeRegister(0x20, reg1);
+        } else if (reg3Changed) {
+            writeRegister(0x22, reg3);
+        }
+        CTRL_REG1 = reg1;
+        CTRL_REG3 = reg3;
+        
+        powered = (reg1 & 0b1000_0000) != 0;
+        oneshot = (reg1 & 0b0000_0011) == 0;
+    }
+    
+    /**Starts interrupt-driven acquisition.
+     *
+     * <p>Enables DRDY_EN bit, so the sensor signals new data on pin 3, and
+     * listens to the GPIO pin it is wired to. On every data ready edge both
+     * values are read in one transaction, as in {@link getSample(Args)}, and
+     * passed to the listener. Status register is never polled. The edge
+     * follows the level set with {@link setDrDyOutput(boolean)}.
+     * <p>The edge only posts the read to the reader thread of this instance,
+     * the one {@link readAsync()} runs on. The read and the listener run
+     * there, so the listener should return quickly. While the listener is
+     * set the sensor belongs to that thread: the listener may call any
+     * method, but calls from other threads that access the bus throw 
+     * IllegalStateException. Only {@link removeDataReadyListener()} and
+     * {@link close()} are allowed, they wait for the reads already posted.
+     * @param controllerNumber GPIO controller (port) number.
+     * @param pinNumber GPIO pin number.
+     * @param listener Gets the samples.
+     * @throws IOException
+     */
+    public void setDataReadyListener(int controllerNumber, int pinNumber, 
+            DataReadyListener listener) throws IOException{
+        if (listener == null) throw new IllegalArgumentException("listener should not be null");
+        boolean activeHigh = (CTRL_REG3 & 0b1000_0000) == 0;
+        InterruptLine line = new GPIOInterruptLine(controllerNumber, pinNumber, activeHigh);
+        try {
+            setDataReadyListener(line, listener);
+        } catch (IOException | RuntimeException e) {
+            try {
+                line.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+    
+    /**Starts interrupt-driven acquisition on the given line.
+     *
+     * <p>Same as {@link setDataReadyListener(int, int, DataReadyListener)},
+     * but the line is provided by the caller, e.g. 
+     * {@link SimulatedHTS221#getDataReadyLine()}. The line is closed when the
+     * listener is removed. If this method throws, the listener is not set
+     * and the line stays with the caller.
+     * @param line Line the DRDY output is wired to.
+     * @param listener Gets the samples.
+     * @throws IOException
+     */
+    public void setDataReadyListener(final InterruptLine line, 
+            final DataReadyListener listener) throws IOException{
+        if (listener == null) throw new IllegalArgumentException("listener should not be null");
+        if (shared) throw new IllegalStateException("Sensor is owned by SharedHTS221.");
+        removeDataReadyListener();
         
-        dev = DeviceManager.open(conf);
-        dev.read(0xB0,1,buf);
-        dev.close();
+        final ScheduledExecutorService executor = scheduler();
+        final Args args = new Args(); // reused for every sample
+        final Runnable read = new Runnable() {
+            @Override
+            public void run() {
+                if (drdyLine != line) return;   // removed while queued
+                try {
+                    getSample(args);
+                } catch (IOException e) {
+                    args.err = 4;
+                    args.msg = "I/O error while reading data.";
+                }
+                listener.dataReady(args);
+            }
+        };
+        
+        byte reg = (byte) (CTRL_REG3 | 0b0000_0100); // DRDY_EN
+        writeRegister(0x22, reg);
+        CTRL_REG3 = reg;
+        
+        drdyLine = line;    // from here on the bus belongs to the reader thread
+        try {
+            line.setListener(new Runnable() {
+                @Override
+                public void run() {
+                    executor.execute(read);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            drdyLine = null;
+            try {
+                reg = (byte) (CTRL_REG3 & 0b1111_1011);
+                writeRegister(0x22, reg);
+                CTRL_REG3 = reg;
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
         
-        buf.rewind();
+        // Output registers may already hold a sample, then the edge was missed
+        // and the pin stays active until they are read. Read them to rearm it.
+        if (powered) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (drdyLine != line) return;
+                    try {
+                        getSample(args);
+                    } catch (IOException e) {
+                        return;     // the next edge will tell
+                    }
+                    if (args.err == 0) listener.dataReady(args);
+                }
+            });
+        }
+    }
+    
+    /**Stops interrupt-driven acquisition.
+     *
+     * <p>Clears DRDY_EN bit and releases the line. Reads already posted to
+     * the reader thread are dropped, a read in progress is waited for.
+     * Does nothing if there is no listener set.
+     * @throws IOException
+     */
+    public void removeDataReadyListener() throws IOException{
+        InterruptLine line = drdyLine;
+        if (line == null) return;
         
-        byte buf1 = buf.get(); // H0_rH_x2 value
-        H0_rH = ((float)(buf1 >= 0 ? buf1 : 256 - buf1)) / 2;
+        line.setListener(null);
+        drdyLine = null;
+        if (Thread.currentThread() != reader) awaitReader();
         
-        byte buf2 = buf.get(); // H1_rH_x2 value
-        H1_rH = ((float)(buf2 >= 0 ? buf2 : 256 - buf2)) / 2;
+        try {
+            byte reg = (byte) (CTRL_REG3 & 0b1111_1011);
+            writeRegister(0x22, reg);
+            CTRL_REG3 = reg;
+        } finally {
+            line.close();
+        }
+    }
+    
+    // Waits until the reader thread finishes what it is doing.
+    private void awaitReader(){
+        Future<?> done;
+        synchronized (this) {
+            if (scheduler == null) return;
+            done = scheduler.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // nothing, just a mark in the queue
+                }
+            });
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+    
+    private void getCalibrationValues() throws IOException{
+        readBurst(0xB0, 16);
+        burstBuf.rewind();
+        burstBuf.get(calibration);
+        decodeCalibration();
+    }
+    
+    // Computes calibration values and coefficients from the calibration array.
+    private void decodeCalibration(){
+        ByteBuffer buf = ByteBuffer.wrap(calibration).order(ByteOrder.LITTLE_ENDIAN);
+        
+        int buf1 = buf.get() & 0xFF; // H0_rH_x2 value, unsigned
+        H0_rH = ((float) buf1) / 2;
+        
+        int buf2 = buf.get() & 0xFF; // H1_rH_x2 value, unsigned
+        H1_rH = ((float) buf2) / 2;
 
-        buf1 = buf.get(); // LSB of T0_degC_x8
-        buf2 = buf.get(); // LSB of T1_degC_x8
+        buf1 = buf.get() & 0xFF; // LSB of T0_degC_x8
+        buf2 = buf.get() & 0xFF; // LSB of T1_degC_x8
         
         buf.get(); // skip reserved
         
-        byte buf3 = buf.get(); // this contains MSB for both T0 and T1 degC_x8
-        byte buf4 = buf3;
-         
-        buf3 &= 0b0000_0011; // a little bit of dancing with buben
-        short buf3s = buf3;
-        buf3s <<= 8;
-        T0_degC = ((float)(buf3s | buf1)) / 8;
+        int buf3 = buf.get(); // this contains MSB for both T0 and T1 degC_x8
         
-        buf4 &= 0b0000_1100;
-        short buf4s = buf4;
-        buf4s <<= 6;
-        T1_degC = ((float)(buf4s | buf2)) / 8;
+        T0_degC = ((float) ((buf3 & 0b0000_0011) << 8 | buf1)) / 8;
+        T1_degC = ((float) ((buf3 & 0b0000_1100) << 6 | buf2)) / 8;
         
-        buf.order(ByteOrder.LITTLE_ENDIAN);
         H0_T0_OUT = buf.getShort();
         buf.getShort(); // skip reserved
         H1_T0_OUT = buf.getShort();
         T0_OUT = buf.getShort();
         T1_OUT = buf.getShort();
+        
+        T_slope = (T1_degC - T0_degC) / (T1_OUT - T0_OUT);
+        T_offset = T0_degC - T0_OUT * T_slope;
+        H_slope = (H1_rH - H0_rH) / (H1_T0_OUT - H0_T0_OUT);
+        H_offset = H0_rH - H0_T0_OUT * H_slope;
+        
+        T_slope_q = Math.round(T_slope * 100 * 65536);
+        T_offset_q = Math.round(T_offset * 100 * 65536);
+        H_slope_q = Math.round(H_slope * 100 * 65536);
+        H_offset_q = Math.round(H_offset * 100 * 65536);
+    }
+    
+   /** Compares calibration in use with calibration registers of the device.
+    * <p>Needed once after construction with a {@link CalibrationCache}
+    * entry, see {@link isCalibrationValidated()}. If they differ, e.g. the
+    * sensor was replaced, calibration is taken from the device and the
+    * cache entry is replaced. Bus owners like {@link SamplerHTS221} call it
+    * on their thread when they start.
+    * <p>Failure to write the cache does not fail the check, see
+    * {@link getCacheError()}.
+    * @return True if calibration was the same.
+    * @throws IOException If the device can't be read, calibration in use
+    * is left as is then.
+    */
+    public boolean validateCalibration() throws IOException{
+        readBurst(0xB0, 16);
+        boolean same = true;
+        for (int i = 0; i < 16; i++) {
+            if (burstBuf.get(i) != calibration[i]) same = false;
+        }
+        if (!same) {
+            burstBuf.rewind();
+            burstBuf.get(calibration);
+            decodeCalibration();
+            storeCalibration();
+        }
+        calibrationValidated = true;
+        return same;
+    }
+    
+   /** Returns false if calibration was taken from the cache and
+    * {@link validateCalibration()} was not called yet.
+    */
+    public boolean isCalibrationValidated(){
+        return calibrationValidated;
+    }
+    
+   /** Returns why calibration could not be stored in the cache.
+    * <p>The cache only saves reading calibration on the next start, so
+    * failing to write it, e.g. to a read-only or missing directory, fails
+    * neither {@link init()} nor {@link validateCalibration()}. The
+    * calibration read from the device is used all the same.
+    * @return Last write error, null if the entry was stored or not needed.
+    */
+    public IOException getCacheError(){
+        return cacheError;
+    }
+    
+    // Stores calibration in the cache, if any, keeping a write error.
+    private void storeCalibration(){
+        if (cache == null) return;
+        try {
+            cache.put(cacheKey, calibration);
+            cacheError = null;
+        } catch (IOException e) {
+            cacheError = e;
+        }
+    }
+    
+   /** Converts raw temperature output to degrees of Celsius.
+    * @param raw Content of T_OUT registers.
+    * @return Temperature in degrees of Celsius.
+    */
+    public float toDegrees(short raw){
+        return raw * T_slope + T_offset;
+    }
+    
+   /** Converts raw humidity output to percents of relative humidity.
+    * @param raw Content of H_OUT registers.
+    * @return Relative humidity in percents.
+    */
+    public float toRH(short raw){
+        return raw * H_slope + H_offset;
+    }
+    
+   /** Converts raw temperature output to hundredths of degree of Celsius.
+    * <p>Uses integer arithmetic only, for targets without FPU.
+    * @param raw Content of T_OUT registers.
+    * @return Temperature multiplied by 100.
+    */
+    public int toCentiDegrees(short raw){
+        return (int) ((raw * (long) T_slope_q + T_offset_q + 0x8000) >> 16);
+    }
+    
+   /** Converts raw humidity output to hundredths of percent of relative humidity.
+    * <p>Uses integer arithmetic only, for targets without FPU.
+    * @param raw Content of H_OUT registers.
+    * @return Relative humidity multiplied by 100.
+    */
+    public int toCentiRH(short raw){
+        return (int) ((raw * (long) H_slope_q + H_offset_q + 0x8000) >> 16);
+    }
+    
+   /** Converts raw temperature outputs to degrees of Celsius.
+    * <p>Same as {@link toDegrees(short)} for every element. Calibration is
+    * factory trimmed and only changes if {@link validateCalibration()} finds
+    * a different device, so this can run on any thread, e.g. over arrays
+    * filled by {@link SampleRing#drain}.
+    * @param raw Contents of T_OUT registers.
+    * @param out Temperatures in degrees of Celsius, same indexes as raw.
+    * @param offset Index of the first element to convert.
+    * @param count Number of elements to convert.
+    */
+    public void toDegrees(short[] raw, float[] out, int offset, int count){
+        float slope = T_slope;
+        float off = T_offset;
+        for (int i = offset, end = offset + count; i < end; i++) {
+            out[i] = raw[i] * slope + off;
+        }
+    }
+    
+   /** Converts raw humidity outputs to percents of relative humidity.
+    * <p>Same as {@link toRH(short)} for every element, see
+    * {@link toDegrees(short[], float[], int, int)}.
+    * @param raw Contents of H_OUT registers.
+    * @param out Relative humidity in percents, same indexes as raw.
+    * @param offset Index of the first element to convert.
+    * @param count Number of elements to convert.
+    */
+    public void toRH(short[] raw, float[] out, int offset, int count){
+        float slope = H_slope;
+        float off = H_offset;
+        for (int i = offset, end = offset + count; i < end; i++) {
+            out[i] = raw[i] * slope + off;
+        }
     }
     
     @Deprecated
@@ -385,8 +1007,8 @@ public class SensorHTS221 {
      *
      * <p>Automatically initiates one shot if ODR is set to one shot. Checks 
      * status register until it shows that new data is available. Can be unsafe 
-     * because it contains an infinite loop. Power bit should be set to 1, 
-     * if not, the returning value is -274.
+     * because it contains an infinite loop, use {@link read(Args, long)} 
+     * instead. Power bit should be set to 1, if not, the returning value is -274.
      * @return Temperature in degrees of Celcius.
      * @throws IOException
      * @throws InterruptedException
@@ -395,28 +1017,17 @@ public class SensorHTS221 {
         if (!powered) return -274; // turn device on first!
         if (oneshot) oneShot();
         
-        ByteBuffer buf1 = ByteBuffer.allocateDirect(1);
         byte reg;
         
         while (true){
-            dev = DeviceManager.open(conf);
-            dev.read(0x27,1,buf1); // read status register until there is new data
-            dev.close();
-            buf1.rewind();
-            reg = buf1.get();
+            reg = readRegister(0x27); // read status register until there is new data
             if ((reg & 0b0000_0001) == 1) break;
-            buf1.rewind();
         }
         
         
-        ByteBuffer buf = ByteBuffer.allocateDirect(2);
-        buf.order(ByteOrder.LITTLE_ENDIAN);
+        readBurst(0xAA, 2);
         
-        dev = DeviceManager.open(conf);
-        dev.read(0xAA,1,buf);
-        dev.close();
-        
-        return (buf.getShort(0) - T0_OUT) * (T1_degC - T0_degC) / (T1_OUT - T0_OUT) + T0_degC;
+        return burstBuf.getShort(0) * T_slope + T_offset;
     }
     
     @Deprecated
@@ -424,8 +1035,8 @@ public class SensorHTS221 {
      *
      * <p>Automatically initiates one shot if ODR is set to one shot. Checks status register 
      * until it shows that new data is available. Can be unsafe because it 
-     * contains infinite loop. Power bit should be set to 1, if not, the returning
-     * value is -1.
+     * contains infinite loop, use {@link read(Args, long)} instead. Power bit 
+     * should be set to 1, if not, the returning value is -1.
      * @return Relative humidity value in percents.
      * @throws IOException
      * @throws InterruptedException
@@ -434,27 +1045,33 @@ public class SensorHTS221 {
         if (!powered) return -1;
         if (oneshot) oneShot();
         
-        ByteBuffer buf1 = ByteBuffer.allocateDirect(1);
         byte reg;
         
         while (true){
-            dev = DeviceManager.open(conf);
-            dev.read(0x27,1,buf1); // read status register until there is new data
-            dev.close();
-            buf1.rewind();
-            reg = buf1.get();
+            reg = readRegister(0x27); // read status register until there is new data
             if ((reg & 0b0000_0010) == 2) break;
-            buf1.rewind();
         }
 
-        ByteBuffer buf = ByteBuffer.allocateDirect(2);
-        buf.order(ByteOrder.LITTLE_ENDIAN);
-        
-        dev = DeviceManager.open(conf);
-        dev.read(0xA8,1, buf);
-        dev.close();
+        readBurst(0xA8, 2);
         
-        return (buf.getShort(0) - H0_T0_OUT) * (H1_rH - H0_rH) / (H1_T0_OUT - H0_T0_OUT) + H0_rH;
+        return burstBuf.getShort(0) * H_slope + H_offset;
+    }
+    
+   /** Returns the message for an error code, see {@link Args#err}.
+    * <p>Messages are constants, nothing is allocated.
+    * @param err Error code.
+    * @return Message, as put in {@link Args#msg} by reads of both values.
+    */
+    public static String message(int err){
+        switch (err) {
+            case 0: return "There is no error message. You don't see it.";
+            case 1: return "Power bit is not set to 1.";
+            case 2: return "There is no new data available.";
+            case 3: return "Less than 5 bytes was read.";
+            case 4: return "I/O error while reading data.";
+            case 5: return "Timed out waiting for new data.";
+            default: return "Unknown error.";
+        }
     }
     
     /**Contains set of variables used to pass value back from get methods.
@@ -466,18 +1083,30 @@ public class SensorHTS221 {
             msg = "";
             Temperature = -274;
             Humidity = -1;
+            TemperatureCenti = -27400;
+            HumidityCenti = -100;
+            TemperatureRaw = 0;
+            HumidityRaw = 0;
+            status = 0;
         }
 
         /**Error code.
          * <p>0 - no errors.
          * <p>1 - Power bit is not set to 1.
          * <p>2 - There is no new data available.
-         * <p>3 - Less than 2 bytes was read from register.
+         * <p>3 - Less than 2 bytes (5 for {@link getSample(Args)}) was read 
+         * from register.
+         * <p>4 - I/O error while reading data (only reported to
+         * {@link DataReadyListener}).
+         * <p>5 - Timed out waiting for new data (only reported by
+         * {@link read(Args, long)} and its overloads).
+         * <p>Same codes are packed by {@link readRaw()}.
          */
         public int err;
 
         /**Error message.
          *
+         * <p>Always a constant string, see {@link message(int)}.
          */
         public String msg;
 
@@ -490,6 +1119,285 @@ public class SensorHTS221 {
          *
          */
         public float Humidity;
+
+        /**Temperature value in hundredths of degree.
+         * <p>Only set by {@link getSampleCenti(Args)}.
+         */
+        public int TemperatureCenti;
+
+        /**Relative humidity value in hundredths of percent.
+         * <p>Only set by {@link getSampleCenti(Args)}.
+         */
+        public int HumidityCenti;
+
+        /**Raw content of T_OUT registers.
+         * <p>Only set by {@link getSampleRaw(Args)}. See {@link toDegrees(short)}.
+         */
+        public short TemperatureRaw;
+
+        /**Raw content of H_OUT registers.
+         * <p>Only set by {@link getSampleRaw(Args)}. See {@link toRH(short)}.
+         */
+        public short HumidityRaw;
+
+        /**Content of the status register at the moment of reading.
+         * <p>Only set by {@link getSample(Args)}. Bit 0 - new temperature
+         * data available, bit 1 - new humidity data available.
+         */
+        public byte status;
+    }
+    
+    /**Receives samples from interrupt-driven acquisition.
+     * <p>See {@link setDataReadyListener(int, int, DataReadyListener)}.
+     */
+    public interface DataReadyListener {
+
+        /**Called on every data ready signal, on the reader thread.
+         * <p>args is reused for the next sample, copy the values if you need
+         * to keep them. Check err variable of args before using the values.
+         * @param args See {@link Args}.
+         */
+        void dataReady(Args args);
+    }
+    
+    /**Converted sample, result of asynchronous reads.
+     * 
+     */
+    public static final class Sample {
+        Sample(float temperature, float humidity, byte status, long time){
+            Temperature = temperature;
+            Humidity = humidity;
+            this.status = status;
+            this.time = time;
+        }
+
+        /**Temperature value.
+         *
+         */
+        public final float Temperature;
+
+        /**Relative humidity value.
+         *
+         */
+        public final float Humidity;
+
+        /**Content of the status register at the moment of reading.
+         *
+         */
+        public final byte status;
+
+        /**Time of reading, ms, as returned by System.currentTimeMillis().
+         *
+         */
+        public final long time;
+    }
+    
+    /**Timing of sensor bring-up, see {@link init()}.
+     * 
+     */
+    public static final class Startup {
+        Startup(byte whoAmI, boolean rebooted, boolean cached, long openNanos, long identifyNanos, long calibrationNanos, long controlNanos){
+            this.whoAmI = whoAmI;
+            this.rebooted = rebooted;
+            this.cached = cached;
+            this.openNanos = openNanos;
+            this.identifyNanos = identifyNanos;
+            this.calibrationNanos = calibrationNanos;
+            this.controlNanos = controlNanos;
+        }
+
+        /**Content of WHO_AM_I register.
+         *
+         */
+        public final byte whoAmI;
+
+        /**True if the sensor was rebooted because WHO_AM_I was wrong.
+         *
+         */
+        public final boolean rebooted;
+
+        /**True if calibration was taken from {@link CalibrationCache}.
+         *
+         */
+        public final boolean cached;
+
+        /**Time to open the bus session, ns.
+         *
+         */
+        public final long openNanos;
+
+        /**Time to read WHO_AM_I and AV_CONF, with the reboot if done, ns.
+         *
+         */
+        public final long identifyNanos;
+
+        /**Time to read or load and decode the calibration block, ns.
+         *
+         */
+        public final long calibrationNanos;
+
+        /**Time to read the control registers, ns.
+         *
+         */
+        public final long controlNanos;
+
+        /**Returns total time of bring-up, ns.
+         *
+         */
+        public long totalNanos(){
+            return openNanos + identifyNanos + calibrationNanos + controlNanos;
+        }
+    }
+    
+    /**Reads both values without blocking the caller.
+     *
+     * <p>If ODR is set to one shot, initiates one shot. The wait for
+     * conversion and the read are done by a single thread owned by this 
+     * instance, the future is completed from that thread. Completes
+     * exceptionally with IOException on bus error, TimeoutException if no 
+     * new data shows up in time (50 ms for one shot, two output periods 
+     * otherwise) and IllegalStateException if the power bit is not set to 1
+     * or the sensor is owned by {@link SharedHTS221}.
+     * <p>Other methods of this instance should not be called while
+     * the read is in progress.
+     * @return Future of the sample.
+     */
+    public CompletableFuture<Sample> readAsync(){
+        return readAsync(0b0000_0011);
+    }
+    
+    /**Reads temperature without blocking the caller.
+     *
+     * <p>Same as {@link readAsync()}, but waits for new temperature only.
+     * Humidity value of the sample is whatever is in H_OUT registers.
+     * @return Future of the sample.
+     */
+    public CompletableFuture<Sample> readTemperatureAsync(){
+        return readAsync(0b0000_0001);
+    }
+    
+    /**Reads humidity without blocking the caller.
+     *
+     * <p>Same as {@link readAsync()}, but waits for new humidity only.
+     * Temperature value of the sample is whatever is in T_OUT registers.
+     * @return Future of the sample.
+     */
+    public CompletableFuture<Sample> readHumidityAsync(){
+        return readAsync(0b0000_0010);
+    }
+    
+    private CompletableFuture<Sample> readAsync(final int mask){
+        final CompletableFuture<Sample> future = new CompletableFuture<>();
+        if (shared) {
+            future.completeExceptionally(new IllegalStateException("Sensor is owned by SharedHTS221, use its read()."));
+            return future;
+        }
+        if (!powered) {
+            future.completeExceptionally(new IllegalStateException("Power bit is not set to 1."));
+            return future;
+        }
+        pending.add(future);
+        future.whenComplete(new BiConsumer<Sample, Throwable>() {
+            @Override
+            public void accept(Sample sample, Throwable error) {
+                pending.remove(future);
+            }
+        });
+        final ScheduledExecutorService executor = scheduler();
+        Runnable check = new Runnable() {
+            private final Args args = new Args();
+            private boolean started;
+            private long deadline;
+            private long poll;
+            
+            @Override
+            public void run() {
+                if (executor.isShutdown()) {     // queued before close()
+                    future.completeExceptionally(new IOException("Sensor closed."));
+                    return;
+                }
+                try {
+                    if (!started) {
+                        started = true;
+                        start();
+                        return;
+                    }
+                    if (acquire(args, mask)) {
+                        future.complete(new Sample(burstBuf.getShort(3) * T_slope + T_offset,
+                                burstBuf.getShort(1) * H_slope + H_offset,
+                                args.status, System.currentTimeMillis()));
+                    } else if (args.err != 2) {
+                        future.completeExceptionally(new IOException(args.msg));
+                    } else if (System.nanoTime() - deadline > 0) {
+                        future.completeExceptionally(new TimeoutException(args.msg));
+                    } else {
+                        executor.schedule(this, poll, TimeUnit.NANOSECONDS);
+                    }
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                } catch (RejectedExecutionException e) {
+                    // closed while this check was running
+                    future.completeExceptionally(new IOException("Sensor closed."));
+                }
+            }
+            
+            // Triggers one shot if needed and schedules the first check
+            // for the moment the data is expected.
+            private void start() throws IOException {
+                long first;
+                if (oneshot) {
+                    writeRegister(0x21, (byte) (CTRL_REG2 | 0b0000_0001));
+                    first = conversionNanos(AV_CONF);
+                    poll = 1_000_000;
+                    deadline = System.nanoTime() + 50_000_000;
+                } else {
+                    long period = periodNanos();
+                    first = 0;
+                    poll = period / 8;
+                    deadline = System.nanoTime() + 2 * period;
+                }
+                executor.schedule(this, first, TimeUnit.NANOSECONDS);
+            }
+        };
+        try {
+            executor.execute(check);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IOException("Sensor closed."));   // close() at the same time
+        }
+        return future;
+    }
+    
+    // Output data period for current ODR, ns.
+    long periodNanos(){
+        switch (CTRL_REG1 & 0b0000_0011) {
+            case 1: return 1_000_000_000L;
+            case 2: return 1_000_000_000L / 7;
+            default: return 80_000_000L;
+        }
+    }
+    
+    // Marks the sensor as owned by SharedHTS221, or released by it.
+    // Asynchronous reads and data ready listener would run on a second thread then.
+    void setShared(boolean shared){
+        if (shared && drdyLine != null) throw new IllegalStateException("Remove data ready listener first.");
+        this.shared = shared;
+    }
+    
+    private synchronized ScheduledExecutorService scheduler(){
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "HTS221 reader");
+                    t.setDaemon(true);
+                    reader = t;
+                    return t;
+                }
+            });
+            // on close() checks waiting for their time are dropped, not run
+            scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+        return scheduler;
     }
     
     /**Gets the temperature value from corresponding register.
@@ -508,25 +1416,18 @@ public class SensorHTS221 {
             args.msg = "Power bit is not set to 1.";
             return false;
         }
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        dev = DeviceManager.open(conf);
-        dev.read(0x27,1,buf);
-        if ((buf.get(0) & 0b0000_0001) != 1) {
+        if ((readRegister(0x27) & 0b0000_0001) != 1) {
             args.err = 2;
             args.msg = "There is no new data available.";
-            dev.close();
             return false;
         }
-        buf = ByteBuffer.allocateDirect(2);
-        buf.order(ByteOrder.LITTLE_ENDIAN);
-        int read = dev.read(0xAA,1,buf);
-        dev.close();
+        int read = readBurst(0xAA, 2);
         if (read < 2) {
             args.err = 3;
             args.msg = "Less than 2 bytes was read.";
             return false;
         }
-        args.Temperature = (buf.getShort(0) - T0_OUT) * (T1_degC - T0_degC) / (T1_OUT - T0_OUT) + T0_degC;
+        args.Temperature = burstBuf.getShort(0) * T_slope + T_offset;
         args.err = 0;
         args.msg = "There is no error message. You don't see it.";
         return true;
@@ -548,27 +1449,257 @@ public class SensorHTS221 {
             args.msg = "Power bit is not set to 1.";
             return false;
         }
-        ByteBuffer buf = ByteBuffer.allocateDirect(1);
-        dev = DeviceManager.open(conf);
-        dev.read(0x27,1,buf);
-        if ((buf.get(0) & 0b0000_0010) != 2) {
+        if ((readRegister(0x27) & 0b0000_0010) != 2) {
             args.err = 2;
             args.msg = "There is no new data available.";
-            dev.close();
             return false;
         }
-        buf = ByteBuffer.allocateDirect(2);
-        buf.order(ByteOrder.LITTLE_ENDIAN);
-        int read = dev.read(0xA8,1,buf);
-        dev.close();
+        int read = readBurst(0xA8, 2);
         if (read < 2) {
             args.err = 3;
             args.msg = "Less than 2 bytes was read.";
             return false;
         }
-        args.Humidity = (buf.getShort(0) - H0_T0_OUT) * (H1_rH - H0_rH) / (H1_T0_OUT - H0_T0_OUT) + H0_rH;
+        args.Humidity = burstBuf.getShort(0) * H_slope + H_offset;
+        args.err = 0;
+        args.msg = "There is no error message. You don't see it.";
+        return true;
+    }
+    
+    /**Gets both humidity and temperature values in one transaction.
+     *
+     * Reads status register and both output registers (0x27-0x2B) at once,
+     * using register address auto-increment. Doesn't initiate one shot, so you
+     * have to do it if ODR is set to one shot. If both temperature and humidity
+     * are new, puts them in Temperature and Humidity variables of args.
+     * Status register content is put in status variable of args in any case
+     * the read was done. Returns true if it successfully gets the values,
+     * false in other cases. Check the err and msg variables of args in that case.
+     * @param args See {@link Args}.
+     * @return True, if try was successful.
+     * @throws IOException
+     */
+    public boolean getSample(Args args) throws IOException{
+        if (!acquire(args, 0b0000_0011)) return false;
+        args.Humidity = burstBuf.getShort(1) * H_slope + H_offset;
+        args.Temperature = burstBuf.getShort(3) * T_slope + T_offset;
+        args.err = 0;
+        args.msg = "There is no error message. You don't see it.";
+        return true;
+    }
+    
+    /**Gets both humidity and temperature values in one transaction without
+     * floating point math.
+     *
+     * Same as {@link getSample(Args)}, but puts the values in TemperatureCenti
+     * and HumidityCenti variables of args, as hundredths of degree and
+     * hundredths of percent.
+     * @param args See {@link Args}.
+     * @return True, if try was successful.
+     * @throws IOException
+     */
+    public boolean getSampleCenti(Args args) throws IOException{
+        if (!acquire(args, 0b0000_0011)) return false;
+        args.HumidityCenti = toCentiRH(burstBuf.getShort(1));
+        args.TemperatureCenti = toCentiDegrees(burstBuf.getShort(3));
+        args.err = 0;
+        args.msg = "There is no error message. You don't see it.";
+        return true;
+    }
+    
+    /**Gets both raw humidity and temperature outputs in one transaction.
+     *
+     * Same as {@link getSample(Args)}, but doesn't convert the values and puts
+     * them in TemperatureRaw and HumidityRaw variables of args.
+     * @param args See {@link Args}.
+     * @return True, if try was successful.
+     * @throws IOException
+     */
+    public boolean getSampleRaw(Args args) throws IOException{
+        if (!acquire(args, 0b0000_0011)) return false;
+        args.HumidityRaw = burstBuf.getShort(1);
+        args.TemperatureRaw = burstBuf.getShort(3);
         args.err = 0;
         args.msg = "There is no error message. You don't see it.";
         return true;
     }
+    
+    /**Gets raw status and outputs in one transaction, packed in a long.
+     *
+     * Reads STATUS_REG, H_OUT and T_OUT like {@link getSample(Args)}, but
+     * doesn't convert anything, doesn't need Args and allocates nothing:
+     * H_OUT is in bits 0-15, T_OUT in bits 16-31, STATUS_REG in bits 32-39
+     * and the error code, same as {@link Args#err}, in bits 40-47. Use
+     * {@link rawHumidity(long)}, {@link rawTemperature(long)},
+     * {@link rawStatus(long)} and {@link rawError(long)} to unpack. The
+     * outputs are new only if the error code is 0. Doesn't initiate one shot.
+     * @return Packed values.
+     * @throws IOException
+     */
+    public long readRaw() throws IOException{
+        if (!powered) return 1L << 40;
+        if (readBurst(0xA7, 5) < 5) return 3L << 40;
+        ByteBuffer buf = burstBuf;
+        byte status = buf.get(0);
+        long err = (status & 0b0000_0011) == 0b0000_0011 ? 0 : 2;
+        return err << 40
+                | (status & 0xFFL) << 32 
+                | (buf.getShort(3) & 0xFFFFL) << 16 
+                | (buf.getShort(1) & 0xFFFFL);
+    }
+    
+   /** Returns H_OUT packed by {@link readRaw()}. */
+    public static short rawHumidity(long raw){
+        return (short) raw;
+    }
+    
+   /** Returns T_OUT packed by {@link readRaw()}. */
+    public static short rawTemperature(long raw){
+        return (short) (raw >> 16);
+    }
+    
+   /** Returns STATUS_REG packed by {@link readRaw()}. */
+    public static byte rawStatus(long raw){
+        return (byte) (raw >> 32);
+    }
+    
+   /** Returns error code packed by {@link readRaw()}, see {@link Args#err}. */
+    public static int rawError(long raw){
+        return (int) (raw >> 40) & 0xFF;
+    }
+    
+    /**Gets both values and initiates the next one shot right away.
+     *
+     * Same as {@link getSample(Args)}, but if the read is successful the
+     * ONE_SHOT bit is set immediately after it, on the same open bus 
+     * session and before the values are converted. The next conversion then
+     * runs while the caller processes this sample. See {@link OneShotPipeline}.
+     * @param args See {@link Args}.
+     * @return True, if try was successful.
+     * @throws IOException
+     */
+    public boolean getSampleAndTrigger(Args args) throws IOException{
+        if (!acquire(args, 0b0000_0011)) return false;
+        short hum = burstBuf.getShort(1);
+        short temp = burstBuf.getShort(3);
+        trigger();
+        args.Humidity = hum * H_slope + H_offset;
+        args.Temperature = temp * T_slope + T_offset;
+        args.err = 0;
+        args.msg = "There is no error message. You don't see it.";
+        return true;
+    }
+    
+    /**Gets both values, waiting for them no longer than the timeout.
+     *
+     * Same as {@link read(Args, long, PollStrategy)} with
+     * {@link PollStrategy#parking()}: pauses between checks start at 100 us
+     * and double up to 5 ms.
+     * @param args See {@link Args}.
+     * @param timeoutNanos Time to wait for data, ns.
+     * @return True, if try was successful.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean read(Args args, long timeoutNanos) throws IOException, InterruptedException{
+        return read(args, timeoutNanos, defaultPoll);
+    }
+    
+    /**Gets both values, waiting for them no longer than the timeout.
+     *
+     * Automatically initiates one shot if ODR is set to one shot. The first
+     * check is done when the data is expected: after the conversion time
+     * for one shot, one output period after the previous sample taken by
+     * this method in continuous mode. If there is no new data yet, waits
+     * according to the strategy and checks again, but never waits past the
+     * deadline. Returns false with err 5 when the deadline passes, see
+     * {@link Args}. Thread interruption is honored at every pause.
+     * @param args See {@link Args}.
+     * @param timeoutNanos Time to wait for data, ns.
+     * @param poll How to wait between checks.
+     * @return True, if try was successful.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean read(Args args, long timeoutNanos, PollStrategy poll) throws IOException, InterruptedException{
+        long raw = read(timeoutNanos, poll);
+        int err = rawError(raw);
+        if (err == 0 || err == 2 || err == 5) args.status = rawStatus(raw);
+        if (err != 0) {
+            args.err = err;
+            args.msg = message(err);
+            return false;
+        }
+        args.Humidity = rawHumidity(raw) * H_slope + H_offset;
+        args.Temperature = rawTemperature(raw) * T_slope + T_offset;
+        args.err = 0;
+        args.msg = message(0);
+        return true;
+    }
+    
+    /**Gets raw values packed in a long, waiting for them no longer than the timeout.
+     *
+     * Same as {@link read(Args, long, PollStrategy)}, but returns the values
+     * packed like {@link readRaw()} does, with error code 5 if the deadline
+     * passes. Allocates nothing and throws only on bus failure or interrupt.
+     * @param timeoutNanos Time to wait for data, ns.
+     * @param poll How to wait between checks.
+     * @return Packed values.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public long read(long timeoutNanos, PollStrategy poll) throws IOException, InterruptedException{
+        long deadline = System.nanoTime() + timeoutNanos;
+        if (powered && oneshot) {
+            trigger();
+            pauseUntil(Math.min(System.nanoTime() + getConversionNanos(), deadline));
+        } else if (powered && lastSample != 0) {
+            pauseUntil(Math.min(lastSample + periodNanos(), deadline));
+        }
+        long first = System.nanoTime();
+        while (true) {
+            poll.polled();
+            long raw = readRaw();
+            int err = rawError(raw);
+            if (err == 0) {
+                poll.sampled();
+                lastSample = System.nanoTime();
+                return raw;
+            }
+            if (err != 2) return raw;
+            long now = System.nanoTime();
+            if (deadline - now <= 0) return raw & ~(0xFFL << 40) | 5L << 40;
+            poll.pause(now - first, deadline - now);
+        }
+    }
+    
+    // Sleeps until System.nanoTime() reaches time.
+    private static void pauseUntil(long time) throws InterruptedException{
+        long wait = time - System.nanoTime();
+        if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        else if (Thread.interrupted()) throw new InterruptedException();
+    }
+    
+    // Reads STATUS_REG, H_OUT and T_OUT into burstBuf.
+    // Returns false and sets error in args if status bits of mask are not all set.
+    private boolean acquire(Args args, int mask) throws IOException{
+        if (!powered) {
+            args.err = 1;
+            args.msg = "Power bit is not set to 1.";
+            return false;
+        }
+        int read = readBurst(0xA7, 5); // 0x27 with auto-increment bit: STATUS_REG, H_OUT, T_OUT
+        if (read < 5) {
+            args.err = 3;
+            args.msg = "Less than 5 bytes was read.";
+            return false;
+        }
+        args.status = burstBuf.get(0);
+        if ((args.status & mask) != mask) {
+            args.err = 2;
+            args.msg = "There is no new data available.";
+            return false;
+        }
+        return true;
+    }
 }
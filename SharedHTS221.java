@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe access to {@link SensorHTS221}.
+ *
+ * <p>{@link SensorHTS221} itself is not thread-safe: concurrent calls
+ * interleave register traffic and shadow register updates. This class owns
+ * the sensor and runs every operation on a single bus-owner thread.
+ * Any number of threads submit operations through a lock-free queue and
+ * get futures back. Once the sensor is passed here it must not be used
+ * directly. Its asynchronous reads and data ready listener are refused,
+ * they would run on a second thread.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SharedHTS221 implements AutoCloseable {
+
+    /**
+     * Operation run on the bus-owner thread.
+     */
+    public interface Operation<T> {
+
+       /** Does the work with exclusive access to the sensor.
+        * @param sensor The sensor.
+        * @return Result to complete the future with.
+        */
+        T run(SensorHTS221 sensor) throws Exception;
+    }
+
+    // Submitted operation and its future.
+    private static final class Task<T> {
+        final Operation<T> operation;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(Operation<T> operation){
+            this.operation = operation;
+        }
+
+        void run(SensorHTS221 sensor){
+            try {
+                future.complete(operation.run(sensor));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } catch (Error e) {
+                future.completeExceptionally(e);
+                throw e;    // the owner thread stops, see loop()
+            }
+        }
+
+        void fail(){
+            future.completeExceptionally(new IllegalStateException("Sensor is closed."));
+        }
+    }
+
+    private final SensorHTS221 sensor;
+    private final ConcurrentLinkedQueue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+    private final Thread owner;
+    private volatile boolean running = true;
+
+    // Latest read, in flight or done. Shared by concurrent readers.
+    private final AtomicReference<CompletableFuture<SensorHTS221.Sample>> lastRead = new AtomicReference<>();
+    // How old a sample can be to be given to a reader instead of a new read, ms.
+    private volatile long freshness;
+    // Result of validateCalibration() done on start, see getCalibrationCheck().
+    private final CompletableFuture<Boolean> calibrationCheck;
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+   /** Takes the sensor over and starts the bus-owner thread.
+    * <p>If the sensor's calibration came from a {@link CalibrationCache},
+    * the first operation validates it, see
+    * {@link SensorHTS221#validateCalibration()} and
+    * {@link getCalibrationCheck()}.
+    * @param sensor Sensor to share.
+    */
+    public SharedHTS221(SensorHTS221 sensor){
+        this.sensor = sensor;
+        sensor.setShared(true);
+        owner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "HTS221 bus owner");
+        owner.setDaemon(true);
+        owner.start();
+        if (!sensor.isCalibrationValidated()) {
+            calibrationCheck = submit(new Operation<Boolean>() {
+                @Override
+                public Boolean run(SensorHTS221 sensor) throws Exception {
+                    return sensor.validateCalibration();
+                }
+            });
+        } else {
+            calibrationCheck = CompletableFuture.completedFuture(true);
+        }
+    }
+
+   /** Returns the check of cached calibration done on start.
+    * <p>Completes with false if the cached calibration did not match the
+    * device and was replaced, exceptionally with IOException if the device
+    * could not be read and the cached calibration stays in use. Already
+    * completed with true if calibration was read from the device. A failure
+    * to write the new entry doesn't fail the check, see
+    * {@link SensorHTS221#getCacheError()}.
+    * @return Future of {@link SensorHTS221#validateCalibration()}.
+    */
+    public CompletableFuture<Boolean> getCalibrationCheck(){
+        return calibrationCheck;
+    }
+
+   /** Submits an operation.
+    * <p>Operations run one at a time in the order of submission. After
+    * {@link close()} the future completes exceptionally with
+    * IllegalStateException. So it does once an operation has thrown an
+    * Error, which completes that operation's future and stops the
+    * bus-owner thread.
+    * @param operation Operation to run.
+    * @return Future of the operation result.
+    */
+    public <T> CompletableFuture<T> submit(Operation<T> operation){
+        Task<T> task = new Task<>(operation);
+        if (!running) {
+            task.fail();
+            return task.future;
+        }
+        queue.offer(task);
+        // close() may have drained the queue between the check and offer
+        if (!running && queue.remove(task)) task.fail();
+        LockSupport.unpark(owner);
+        return task.future;
+    }
+
+   /** Reads both values.
+    * <p>The bus-owner thread waits for new data, see
+    * {@link SensorHTS221#read(SensorHTS221.Args, long)}: 50 ms at most for
+    * one shot, which is initiated first, two output periods otherwise.
+    * Completes exceptionally with TimeoutException if no new data shows up
+    * in time, IllegalStateException if the power bit is not set to 1 and
+    * IOException on bus error.
+    * <p>Readers arriving while a read is in flight get the future of that
+    * read instead of issuing another one. So do readers arriving within
+    * freshness window after a successful read, see {@link setFreshness(long)}.
+    * @return Future of the sample.
+    */
+    public CompletableFuture<SensorHTS221.Sample> read(){
+        while (true) {
+            CompletableFuture<SensorHTS221.Sample> last = lastRead.get();
+            if (last != null && isShareable(last)) {
+                coalesced.incrementAndGet();
+                return last;
+            }
+            final CompletableFuture<SensorHTS221.Sample> next = new CompletableFuture<>();
+            if (!lastRead.compareAndSet(last, next)) continue;  // someone else started a read
+            
+            reads.incrementAndGet();
+            readNow().whenComplete(new BiConsumer<SensorHTS221.Sample, Throwable>() {
+                @Override
+                public void accept(SensorHTS221.Sample sample, Throwable error) {
+                    if (error != null) next.completeExceptionally(error);
+                    else next.complete(sample);
+                }
+            });
+            return next;
+        }
+    }
+
+    private boolean isShareable(CompletableFuture<SensorHTS221.Sample> read){
+        if (!read.isDone()) return true;
+        if (read.isCompletedExceptionally() || freshness == 0) return false;
+        return System.currentTimeMillis() - read.getNow(null).time <= freshness;
+    }
+
+   /** Sets how old a sample can be to be shared by {@link read()}.
+    * @param millis Freshness window, ms. 0 (default) - share in-flight reads only.
+    */
+    public void setFreshness(long millis){
+        if (millis < 0) throw new IllegalArgumentException("millis should not be negative");
+        freshness = millis;
+    }
+
+   /** Returns number of reads {@link read()} issued to the sensor. */
+    public long getReads(){
+        return reads.get();
+    }
+
+   /** Returns number of {@link read()} calls served by another caller's read. */
+    public long getCoalesced(){
+        return coalesced.get();
+    }
+
+   /** Reads both values, always with a new bus transaction.
+    * <p>Same as {@link read()}, but never shares a read with other callers.
+    * @return Future of the sample.
+    */
+    public CompletableFuture<SensorHTS221.Sample> readNow(){
+        return submit(new Operation<SensorHTS221.Sample>() {
+            private final SensorHTS221.Args args = new SensorHTS221.Args();
+
+            @Override
+            public SensorHTS221.Sample run(SensorHTS221 sensor) throws Exception {
+                long timeout = sensor.isOneShot() ? 50_000_000 : 2 * sensor.periodNanos();
+                if (!sensor.read(args, timeout)) {
+                    switch (args.err) {
+                        case 1: throw new IllegalStateException(args.msg);
+                        case 5: throw new TimeoutException(args.msg);
+                        default: throw new IOException(args.msg);
+                    }
+                }
+                return new SensorHTS221.Sample(args.Temperature, args.Humidity,
+                        args.status, System.currentTimeMillis());
+            }
+        });
+    }
+
+   /** Applies configuration, see {@link SensorHTS221#apply(ConfigHTS221)}.
+    * @return Future completed when the configuration is written.
+    */
+    public CompletableFuture<Void> apply(final ConfigHTS221 config){
+        return submit(new Operation<Void>() {
+            @Override
+            public Void run(SensorHTS221 sensor) throws Exception {
+                sensor.apply(config);
+                return null;
+            }
+        });
+    }
+
+   /** Sets the heater, see {@link SensorHTS221#setHeater(boolean)}.
+    * @return Future completed when the register is written.
+    */
+    public CompletableFuture<Void> setHeater(final boolean enable){
+        return submit(new Operation<Void>() {
+            @Override
+            public Void run(SensorHTS221 sensor) throws Exception {
+                sensor.setHeater(enable);
+                return null;
+            }
+        });
+    }
+
+   /** Stops the bus-owner thread and closes the sensor.
+    * <p>Operations submitted before are completed first.
+    * @throws IOException
+    */
+    @Override
+    public void close() throws IOException{
+        running = false;
+        LockSupport.unpark(owner);
+        try {
+            owner.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued();   // submitted while closing
+        sensor.setShared(false);
+        sensor.close();
+    }
+
+    private void loop(){
+        try {
+            while (true) {
+                Task<?> task = queue.poll();
+                if (task != null) {
+                    task.run(sensor);
+                } else if (running) {
+                    LockSupport.park(this);
+                } else {
+                    return;
+                }
+            }
+        } finally {
+            // an Error ended the thread, nothing would run the queue
+            running = false;
+            failQueued();
+        }
+    }
+
+    private void failQueued(){
+        Task<?> task;
+        while ((task = queue.poll()) != null) task.fail();
+    }
+}
@@ -0,0 +1,420 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * In-memory model of HTS221 behind a {@link RegisterBus}.
+ *
+ * <p>Lets {@link SensorHTS221} run on a plain JVM, without the board.
+ * The model implements:
+ * <ul>
+ *   <li>register map 0x0F-0x3F with read-only registers and reserved bits
+ *   ignored on write;</li>
+ *   <li>register address auto-increment when subaddress MSB is set;</li>
+ *   <li>factory calibration block 0x30-0x3F;</li>
+ *   <li>continuous conversion at the rate set by ODR bits, one shot
+ *   conversion taking {@link SensorHTS221#conversionNanos(int)} and boot
+ *   taking {@link BOOT_NANOS};</li>
+ *   <li>H_DA and T_DA bits of STATUS_REG, cleared by reading H_OUT_H and
+ *   T_OUT_H;</li>
+ *   <li>DRDY output, see {@link getDataReadyLine()};</li>
+ *   <li>bus transfer time at the clock rate set with
+ *   {@link setClockFrequency(int)}.</li>
+ * </ul>
+ * <p>Time either follows {@code System.nanoTime()} or is virtual and only
+ * moves on {@link advance(long)}. Virtual time makes runs repeatable.
+ * The model state is evaluated on every bus access and on {@link tick()}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SimulatedHTS221 implements RegisterBus {
+   /** Time the boot procedure takes, ns. */
+    public static final long BOOT_NANOS = 2_000_000;
+
+    private final byte[] regs = new byte[0x40];
+
+    // Physical conditions.
+    private float temperature = 22;
+    private float humidity = 45;
+
+    // Time.
+    private final boolean realTime;
+    private final long origin;
+    private long virtualNanos;
+
+    // Pending events, -1 if none.
+    private long nextSample = -1;
+    private long oneShotDone = -1;
+    private long bootDone = -1;
+
+    // Internal timing off nominal, percent.
+    private int timingError;
+
+    // Bus clock rate, Hz, 0 - transfers take no time.
+    private int clockFrequency;
+    // Total time spent on transfers, ns.
+    private long busNanos;
+
+    private boolean open;
+    private Runnable drdyListener;
+    private boolean drdyActive;
+    // rising edge of DRDY seen, listener not called yet
+    private boolean drdyEdge;
+    private long transactions;
+
+   /** Constructs new model following real time. */
+    public SimulatedHTS221(){
+        this(true);
+    }
+
+   /** Constructs new model.
+    * @param realTime True - time follows System.nanoTime(), false - time is
+    * virtual and only moves on {@link advance(long)}.
+    */
+    public SimulatedHTS221(boolean realTime){
+        this.realTime = realTime;
+        this.origin = System.nanoTime();
+        reset();
+    }
+
+   /** Returns the registers to their state after power-up. */
+    public synchronized void reset(){
+        for (int i = 0; i < regs.length; i++) regs[i] = 0;
+        regs[0x0F] = (byte) 0xBC;       // WHO_AM_I
+        regs[0x10] = 0x1B;              // AV_CONF: 16 temperature, 32 humidity samples
+
+        // Calibration. 33 %rH at -2000, 78 %rH at 7000, 20 degC at -100, 43 degC at 750.
+        regs[0x30] = 66;                // H0_rH_x2
+        regs[0x31] = (byte) 156;        // H1_rH_x2
+        regs[0x32] = (byte) 0xA0;       // T0_degC_x8 LSB, 160
+        regs[0x33] = 0x58;              // T1_degC_x8 LSB, 344 with MSB
+        regs[0x35] = 0b0000_0100;       // T1/T0 MSB
+        putShort(0x36, -2000);          // H0_T0_OUT
+        putShort(0x3A, 7000);           // H1_T0_OUT
+        putShort(0x3C, -100);           // T0_OUT
+        putShort(0x3E, 750);            // T1_OUT
+
+        nextSample = -1;
+        oneShotDone = -1;
+        bootDone = -1;
+        drdyActive = false;
+        drdyEdge = false;
+    }
+
+   /** Sets the temperature the sensor will measure.
+    * @param degC Temperature in degrees of Celsius.
+    */
+    public synchronized void setTemperature(float degC){
+        temperature = degC;
+    }
+
+   /** Sets the relative humidity the sensor will measure.
+    * @param rH Relative humidity in percents.
+    */
+    public synchronized void setHumidity(float rH){
+        humidity = rH;
+    }
+
+   /** Moves virtual time forward and evaluates the model.
+    * @param nanos Time step, ns.
+    */
+    public void advance(long nanos){
+        Runnable edge;
+        synchronized (this) {
+            if (realTime) throw new IllegalStateException("Model follows real time.");
+            virtualNanos += nanos;
+            update();
+            edge = takeEdge();
+        }
+        if (edge != null) edge.run();
+    }
+
+   /** Evaluates the model at current time.
+    * <p>Needed for DRDY line to fire when nobody accesses the bus.
+    */
+    public void tick(){
+        Runnable edge;
+        synchronized (this) {
+            update();
+            edge = takeEdge();
+        }
+        if (edge != null) edge.run();
+    }
+
+   /** Returns current model time, ns. */
+    public synchronized long now(){
+        return realTime ? System.nanoTime() - origin : virtualNanos;
+    }
+
+   /** Sets the bus clock rate used to model transfer time.
+    * <p>Every transaction then takes the time needed to clock its bits out
+    * at this rate. With real time the calling thread spins for that long,
+    * with virtual time the time just moves forward.
+    * @param hz Either 100000 or 400000 Hz, 0 to make transfers instant.
+    */
+    public synchronized void setClockFrequency(int hz){
+        if (hz < 0) throw new IllegalArgumentException("hz should not be negative");
+        clockFrequency = hz;
+    }
+
+   /** Makes conversions slower or faster than nominal.
+    * <p>The internal oscillator of a real sensor is off its nominal
+    * frequency, so samples show up earlier or later than the driver
+    * expects from ODR and AV_CONF. Output periods and one shot conversion
+    * then take (100 + percent) % of their nominal time.
+    * @param percent Timing error, 0 (default) for nominal timing.
+    */
+    public synchronized void setTimingError(int percent){
+        if (percent <= -100) throw new IllegalArgumentException("percent should be above -100");
+        timingError = percent;
+    }
+
+   /** Returns total modelled time spent on bus transfers, ns. */
+    public synchronized long getBusNanos(){
+        return busNanos;
+    }
+
+   /** Returns time a transaction takes on the bus, ns.
+    * <p>Every byte is 8 bits plus ACK. Read: START, address, subaddress,
+    * repeated START, address, data, STOP. Write: START, address,
+    * subaddress, data, STOP.
+    * @param read True for read transaction.
+    * @param length Number of data bytes.
+    * @param hz Bus clock rate, Hz.
+    */
+    public static long transferNanos(boolean read, int length, int hz){
+        int bits = read ? 1 + 9 + 9 + 1 + 9 + 9 * length + 1
+                        : 1 + 9 + 9 + 9 * length + 1;
+        return bits * 1_000_000_000L / hz;
+    }
+
+   /** Returns number of read and write transactions done so far. */
+    public synchronized long getTransactions(){
+        return transactions;
+    }
+
+   /** Returns register content without any side effects.
+    * @param address Register address, 0x00-0x3F.
+    */
+    public synchronized byte peek(int address){
+        return regs[address];
+    }
+
+   /** Returns the DRDY output of the model.
+    * <p>When DRDY_EN bit is set, the line becomes active once a new sample
+    * is available and inactive once both output registers are read.
+    * The listener is called on the thread that evaluated the model, after
+    * the transaction or {@link tick()} that raised the line has finished
+    * and outside the model lock, as an interrupt would come after the bus
+    * is released.
+    */
+    public InterruptLine getDataReadyLine(){
+        return new InterruptLine() {
+            @Override
+            public void setListener(Runnable listener){
+                synchronized (SimulatedHTS221.this) {
+                    drdyListener = listener;
+                }
+            }
+
+            @Override
+            public void close(){
+                setListener(null);
+            }
+        };
+    }
+
+    @Override
+    public synchronized void open(){
+        open = true;
+    }
+
+    @Override
+    public synchronized void close(){
+        open = false;
+    }
+
+    @Override
+    public int read(int subaddress, ByteBuffer dst) throws IOException{
+        int n;
+        Runnable edge;
+        synchronized (this) {
+            open();
+            transfer(true, dst.remaining());
+            update();
+            transactions++;
+            boolean increment = (subaddress & 0x80) != 0;
+            int address = subaddress & 0x7F;
+            n = dst.remaining();
+            for (int i = 0; i < n; i++) {
+                dst.put(readByte(address));
+                if (increment) address = (address + 1) & 0x7F;
+            }
+            updateDataReady();
+            edge = takeEdge();
+        }
+        if (edge != null) edge.run();
+        return n;
+    }
+
+    @Override
+    public int write(int subaddress, ByteBuffer src) throws IOException{
+        int n;
+        Runnable edge;
+        synchronized (this) {
+            open();
+            transfer(false, src.remaining());
+            update();
+            transactions++;
+            boolean increment = (subaddress & 0x80) != 0;
+            int address = subaddress & 0x7F;
+            n = src.remaining();
+            for (int i = 0; i < n; i++) {
+                writeByte(address, src.get());
+                if (increment) address = (address + 1) & 0x7F;
+            }
+            updateDataReady();
+            edge = takeEdge();
+        }
+        if (edge != null) edge.run();
+        return n;
+    }
+
+    // Lets the transfer time pass.
+    private void transfer(boolean read, int length){
+        if (clockFrequency == 0) return;
+        long nanos = transferNanos(read, length, clockFrequency);
+        busNanos += nanos;
+        if (realTime) {
+            long end = System.nanoTime() + nanos;
+            while (System.nanoTime() < end) {
+                // the bus is busy
+            }
+        } else {
+            virtualNanos += nanos;
+        }
+    }
+
+    private byte readByte(int address){
+        if (address >= regs.length) return 0;
+        byte value = regs[address];
+        if (address == 0x29) regs[0x27] &= 0b1111_1101;   // H_OUT_H read, H_DA cleared
+        if (address == 0x2B) regs[0x27] &= 0b1111_1110;   // T_OUT_H read, T_DA cleared
+        return value;
+    }
+
+    private void writeByte(int address, byte value){
+        long now = now();
+        switch (address) {
+            case 0x10:  // AV_CONF
+                regs[address] = (byte) (value & 0b0011_1111);
+                break;
+            case 0x20:  // CTRL_REG1
+                regs[address] = (byte) (value & 0b1000_0111);
+                int odr = value & 0b0000_0011;
+                if ((value & 0b1000_0000) == 0) {
+                    nextSample = -1;
+                    oneShotDone = -1;
+                    regs[0x21] &= 0b1111_1110;
+                } else if (odr == 0) {
+                    nextSample = -1;
+                } else if (nextSample < 0) {
+                    nextSample = now + period(odr);
+                }
+                break;
+            case 0x21:  // CTRL_REG2
+                byte reg = (byte) (regs[address] & 0b1000_0001 | value & 0b0000_0010);
+                if ((value & 0b0000_0001) != 0 && oneShotDone < 0
+                        && (regs[0x20] & 0b1000_0011) == 0b1000_0000) {
+                    oneShotDone = now + skewed(SensorHTS221.conversionNanos(regs[0x10]));
+                    reg |= 0b0000_0001;
+                }
+                if ((value & 0b1000_0000) != 0 && bootDone < 0) {
+                    bootDone = now + BOOT_NANOS;
+                    reg |= 0b1000_0000;
+                }
+                regs[address] = reg;
+                break;
+            case 0x22:  // CTRL_REG3
+                regs[address] = (byte) (value & 0b1100_0100);
+                break;
+            default:
+                // read-only or reserved
+        }
+    }
+
+    private void update(){
+        long now = now();
+        if (bootDone >= 0 && now >= bootDone) {
+            regs[0x21] &= 0b0111_1111;
+            bootDone = -1;
+        }
+        if (oneShotDone >= 0 && now >= oneShotDone) {
+            convert();
+            regs[0x21] &= 0b1111_1110;
+            oneShotDone = -1;
+        }
+        if (nextSample >= 0 && now >= nextSample) {
+            convert();
+            long period = period(regs[0x20] & 0b0000_0011);
+            nextSample += ((now - nextSample) / period + 1) * period;
+        }
+        updateDataReady();
+    }
+
+    // Puts a new sample to output registers.
+    private void convert(){
+        short t0 = getShort(0x3C);
+        short t1 = getShort(0x3E);
+        float t0degC = ((regs[0x35] & 0b0000_0011) << 8 | regs[0x32] & 0xFF) / 8f;
+        float t1degC = ((regs[0x35] & 0b0000_1100) << 6 | regs[0x33] & 0xFF) / 8f;
+        putShort(0x2A, raw(temperature, t0degC, t1degC, t0, t1));
+
+        short h0 = getShort(0x36);
+        short h1 = getShort(0x3A);
+        float h0rH = (regs[0x30] & 0xFF) / 2f;
+        float h1rH = (regs[0x31] & 0xFF) / 2f;
+        putShort(0x28, raw(humidity, h0rH, h1rH, h0, h1));
+
+        regs[0x27] |= 0b0000_0011;
+    }
+
+    private void updateDataReady(){
+        boolean active = (regs[0x22] & 0b0000_0100) != 0 && (regs[0x27] & 0b0000_0011) != 0;
+        if (active && !drdyActive) drdyEdge = true;
+        drdyActive = active;
+    }
+
+    // Returns the listener to call for an edge seen since the last call, null if none.
+    private Runnable takeEdge(){
+        if (!drdyEdge) return null;
+        drdyEdge = false;
+        return drdyListener;
+    }
+
+    private static int raw(float value, float v0, float v1, short out0, short out1){
+        float raw = out0 + (value - v0) * (out1 - out0) / (v1 - v0);
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(raw)));
+    }
+
+    private long period(int odr){
+        switch (odr) {
+            case 1: return skewed(1_000_000_000L);
+            case 2: return skewed(1_000_000_000L / 7);
+            default: return skewed(80_000_000L);
+        }
+    }
+
+    // Returns nominal time with the timing error applied.
+    private long skewed(long nanos){
+        return nanos + nanos * timingError / 100;
+    }
+
+    private short getShort(int address){
+        return (short) (regs[address] & 0xFF | regs[address + 1] << 8);
+    }
+
+    private void putShort(int address, int value){
+        regs[address] = (byte) value;
+        regs[address + 1] = (byte) (value >> 8);
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multiplexer model with {@link SimulatedHTS221} on its channels.
+ *
+ * <p>Several multiplexers made with the same {@link newBus()} model one
+ * physical bus: transfers go to the device of the channel connected on any
+ * of them. If no channel or more than one channel with a device is
+ * connected, across all multiplexers of the bus, the transfer fails, as 
+ * the sensors would not answer or would collide on the real bus.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SimulatedMux extends I2CMux {
+    private final SimulatedHTS221[] devices;
+    private int control;
+
+    // Bus model, finds the device answering among all multiplexers on it.
+    private static final class Target implements RegisterBus {
+        final List<SimulatedMux> muxes = new ArrayList<>();
+
+        @Override
+        public void open(){
+            // nothing to open
+        }
+
+        @Override
+        public int read(int subaddress, ByteBuffer dst) throws IOException{
+            return device().read(subaddress, dst);
+        }
+
+        @Override
+        public int write(int subaddress, ByteBuffer src) throws IOException{
+            return device().write(subaddress, src);
+        }
+
+        @Override
+        public void close(){
+            // nothing to close
+        }
+
+        private synchronized SimulatedHTS221 device() throws IOException{
+            SimulatedHTS221 device = null;
+            for (SimulatedMux mux : muxes) {
+                SimulatedHTS221 d = mux.device();
+                if (d == null) continue;
+                if (device != null) throw new IOException("Devices on several multiplexers answer.");
+                device = d;
+            }
+            if (device == null) throw new IOException("No device answers.");
+            return device;
+        }
+    }
+
+   /** Constructs new multiplexer alone on its bus.
+    * @param devices Device on each channel, null for empty channel.
+    */
+    public SimulatedMux(SimulatedHTS221... devices){
+        this(newBus(), devices);
+    }
+
+   /** Constructs new multiplexer on a shared bus.
+    * @param bus Bus made with {@link newBus()}.
+    * @param devices Device on each channel, null for empty channel.
+    */
+    public SimulatedMux(MuxBus bus, SimulatedHTS221... devices){
+        super(devices.length, bus);
+        if (!(bus.target() instanceof Target)) throw new IllegalArgumentException("Bus should be made with SimulatedMux.newBus().");
+        this.devices = devices.clone();
+        Target target = (Target) bus.target();
+        synchronized (target) {
+            target.muxes.add(this);
+        }
+    }
+
+   /** Returns new bus model for several multiplexers. */
+    public static MuxBus newBus(){
+        return new MuxBus(new Target());
+    }
+
+    @Override
+    protected synchronized void writeControl(int value){
+        control = value;
+    }
+
+    // Returns the device of the connected channel, null if none.
+    private synchronized SimulatedHTS221 device() throws IOException{
+        SimulatedHTS221 device = null;
+        for (int i = 0; i < devices.length; i++) {
+            if ((control & 1 << i) == 0 || devices[i] == null) continue;
+            if (device != null) throw new IOException("Devices on several channels answer.");
+            device = devices[i];
+        }
+        return device;
+    }
+}
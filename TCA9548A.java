@@ -0,0 +1,76 @@
+import java.io.IOException;
+import jdk.dio.DeviceManager;
+import jdk.dio.i2cbus.I2CDevice;
+import jdk.dio.i2cbus.I2CDeviceConfig;
+
+/**
+ * TCA9548A 8-channel I2C multiplexer with HTS221 sensors behind it.
+ *
+ * <p>Several multiplexers on one controller, at different addresses, must
+ * share the bus made with {@link newBus(int, int)}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class TCA9548A extends I2CMux {
+    private final I2CDeviceConfig conf;
+    // Multiplexer device, stays open until close().
+    private I2CDevice dev;
+
+   /** Constructs new instance of this class.
+    * 
+    * @param controllerNumber Number of I2C Bus controller (usually 1).
+    * @param address 7-bit address of the multiplexer, 0x70-0x77.
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    */
+    public TCA9548A(int controllerNumber, int address, int clockFrequency){
+        this(newBus(controllerNumber, clockFrequency), controllerNumber, address, clockFrequency);
+    }
+
+   /** Constructs new instance of this class on a shared bus.
+    * 
+    * @param bus Bus of the controller, see {@link newBus(int, int)}.
+    * @param controllerNumber Number of I2C Bus controller, same as of the bus.
+    * @param address 7-bit address of the multiplexer, 0x70-0x77.
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    */
+    public TCA9548A(MuxBus bus, int controllerNumber, int address, int clockFrequency){
+        super(8, bus);
+        conf = new I2CDeviceConfig.Builder()
+                        .setControllerNumber(controllerNumber) 
+                        .setAddress(address, I2CDeviceConfig.ADDR_SIZE_7)
+                        .setClockFrequency(clockFrequency)
+                        .build();
+    }
+
+   /** Returns new bus for the multiplexers of a controller.
+    * @param controllerNumber Number of I2C Bus controller (usually 1).
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    */
+    public static MuxBus newBus(int controllerNumber, int clockFrequency){
+        return new MuxBus(new I2CRegisterBus(controllerNumber, 0xBE / 2, clockFrequency));
+    }
+
+    @Override
+    protected void writeControl(int value) throws IOException{
+        if (dev == null || !dev.isOpen()) dev = DeviceManager.open(conf);
+        try {
+            dev.write(value);
+        } catch (IOException e) {
+            dev.close();
+            dev = null;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        synchronized (getBus()) {
+            try {
+                super.close();
+            } finally {
+                if (dev != null) dev.close();
+                dev = null;
+            }
+        }
+    }
+}
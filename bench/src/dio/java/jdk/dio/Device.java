@@ -0,0 +1,2 @@
+package jdk.dio;
+public interface Device<P> extends AutoCloseable { void close() throws java.io.IOException; boolean isOpen(); }
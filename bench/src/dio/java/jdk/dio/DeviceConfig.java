@@ -0,0 +1,2 @@
+package jdk.dio;
+public interface DeviceConfig<P> { int DEFAULT = -1; }
@@ -0,0 +1,2 @@
+package jdk.dio.gpio;
+public interface GPIOPin extends jdk.dio.Device<GPIOPin> { void setInputListener(PinListener l) throws java.io.IOException; boolean getValue() throws java.io.IOException; }
@@ -0,0 +1,5 @@
+package jdk.dio.gpio;
+public class GPIOPinConfig implements jdk.dio.DeviceConfig<GPIOPin> {
+ public static final int DIR_INPUT_ONLY=0, MODE_INPUT_PULL_DOWN=1, MODE_INPUT_PULL_UP=2, TRIGGER_RISING_EDGE=3, TRIGGER_FALLING_EDGE=4, TRIGGER_BOTH_EDGES=5;
+ public static class Builder { public Builder setControllerNumber(int n){return this;} public Builder setPinNumber(int n){return this;} public Builder setDirection(int d){return this;} public Builder setDriveMode(int m){return this;} public Builder setTrigger(int t){return this;} public GPIOPinConfig build(){return new GPIOPinConfig();} }
+}
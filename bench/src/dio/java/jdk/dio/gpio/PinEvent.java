@@ -0,0 +1,2 @@
+package jdk.dio.gpio;
+public class PinEvent { public boolean getValue(){return false;} public long getTimeStamp(){return 0;} public GPIOPin getDevice(){return null;} }
@@ -0,0 +1,2 @@
+package jdk.dio.gpio;
+public interface PinListener extends java.util.EventListener { void valueChanged(PinEvent event); }
@@ -0,0 +1,8 @@
+package jdk.dio.i2cbus;
+public interface I2CDevice extends jdk.dio.Device<I2CDevice> {
+ int read(int subaddress, int subaddressSize, java.nio.ByteBuffer dst) throws java.io.IOException;
+ int write(int subaddress, int subaddressSize, java.nio.ByteBuffer src) throws java.io.IOException;
+ int read(java.nio.ByteBuffer dst) throws java.io.IOException;
+ int write(java.nio.ByteBuffer src) throws java.io.IOException;
+ void write(int b) throws java.io.IOException;
+}
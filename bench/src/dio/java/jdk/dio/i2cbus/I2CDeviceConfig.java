@@ -0,0 +1,8 @@
+package jdk.dio.i2cbus;
+public class I2CDeviceConfig implements jdk.dio.DeviceConfig<I2CDevice> {
+ public static final int ADDR_SIZE_7 = 7;
+ public int getControllerNumber(){return 0;}
+ public int getClockFrequency(){return 0;}
+ public int getAddress(){return 0;}
+ public static class Builder { public Builder setControllerNumber(int n){return this;} public Builder setAddress(int a,int s){return this;} public Builder setClockFrequency(int f){return this;} public I2CDeviceConfig build(){return new I2CDeviceConfig();} }
+}
@@ -0,0 +1,64 @@
+import java.io.IOException;
+
+/**
+ * {@link benchmarks.ContentionBenchmark} operations on two sensors, each
+ * on its own {@link SimulatedHTS221} following real time.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class ContentionOps implements benchmarks.ContentionBenchmark.Ops {
+    private static final SharedHTS221.Operation<Long> READ_RAW = new SharedHTS221.Operation<Long>() {
+        @Override
+        public Long run(SensorHTS221 sensor) throws Exception {
+            return sensor.readRaw();
+        }
+    };
+
+    private SharedHTS221 shared;
+    private SensorHTS221 locked;
+
+    @Override
+    public void open(int clockFrequency) throws IOException{
+        shared = new SharedHTS221(sensor(clockFrequency));
+        locked = sensor(clockFrequency);
+    }
+
+    private static SensorHTS221 sensor(int clockFrequency) throws IOException{
+        SimulatedHTS221 device = new SimulatedHTS221();
+        device.setClockFrequency(clockFrequency);
+        SensorHTS221 sensor = new SensorHTS221(device);
+        sensor.setODR(3);
+        sensor.setPower(true);
+        return sensor;
+    }
+
+    @Override
+    public void close() throws IOException{
+        shared.close();
+        locked.close();
+    }
+
+    @Override
+    public long sharedRead(){
+        return shared.submit(READ_RAW).join();
+    }
+
+    @Override
+    public void sharedSetHeater(boolean enable){
+        shared.setHeater(enable).join();
+    }
+
+    @Override
+    public long lockedRead() throws IOException{
+        synchronized (locked) {
+            return locked.readRaw();
+        }
+    }
+
+    @Override
+    public void lockedSetHeater(boolean enable) throws IOException{
+        synchronized (locked) {
+            locked.setHeater(enable);
+        }
+    }
+}
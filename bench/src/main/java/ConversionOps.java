@@ -0,0 +1,46 @@
+import java.io.IOException;
+
+/**
+ * {@link benchmarks.ConversionBenchmark} operations on a sensor calibrated
+ * by {@link SimulatedHTS221}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class ConversionOps implements benchmarks.ConversionBenchmark.Ops {
+    private SensorHTS221 sensor;
+
+    @Override
+    public void open() throws IOException{
+        sensor = new SensorHTS221(new SimulatedHTS221(false));
+    }
+
+    @Override
+    public float toDegrees(short raw){
+        return sensor.toDegrees(raw);
+    }
+
+    @Override
+    public float toRH(short raw){
+        return sensor.toRH(raw);
+    }
+
+    @Override
+    public int toCentiDegrees(short raw){
+        return sensor.toCentiDegrees(raw);
+    }
+
+    @Override
+    public int toCentiRH(short raw){
+        return sensor.toCentiRH(raw);
+    }
+
+    @Override
+    public void toDegrees(short[] raw, float[] out){
+        sensor.toDegrees(raw, out, 0, raw.length);
+    }
+
+    @Override
+    public void toRH(short[] raw, float[] out){
+        sensor.toRH(raw, out, 0, raw.length);
+    }
+}
@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link benchmarks.ManagerBenchmark} operations on a manager of sensors
+ * behind {@link ParkedBus}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class ManagerOps implements benchmarks.ManagerBenchmark.Ops {
+    private ManagerHTS221 manager;
+    private long[] sequences;
+    private SampleSlot.Snapshot[] snapshots;
+
+    @Override
+    public void start(int sensors, int buses, int clockFrequency) throws IOException{
+        manager = new ManagerHTS221();
+        for (int i = 0; i < sensors; i++) {
+            SensorHTS221 sensor = new SensorHTS221(new ParkedBus(new SimulatedHTS221(), clockFrequency));
+            sensor.setAVG(0, 0);
+            sensor.setPower(true);
+            manager.add(sensor, i % buses);
+        }
+        sequences = new long[sensors];
+        snapshots = new SampleSlot.Snapshot[sensors];
+        for (int i = 0; i < sensors; i++) snapshots[i] = new SampleSlot.Snapshot();
+        manager.start(0);
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException{
+        manager.close();
+    }
+
+    @Override
+    public void awaitSweep(){
+        int n = sequences.length;
+        for (int i = 0; i < n; i++) sequences[i] = manager.getSlot(i).getSequence();
+        for (int i = 0; i < n; i++) {
+            while (manager.getSlot(i).getSequence() == sequences[i]) {
+                LockSupport.parkNanos(20_000);
+            }
+        }
+    }
+
+    @Override
+    public int snapshot(){
+        return manager.snapshot(snapshots);
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Model bus that takes as long as the real one.
+ *
+ * <p>Wraps {@link SimulatedHTS221} running in virtual time and spins for
+ * the time every transaction takes on the wire at the given clock rate, see
+ * {@link SimulatedHTS221#transferNanos(boolean, int, int)}. The model time
+ * moves by the same amount, so benchmarks measure the driver plus the bus
+ * while outputs still only change when the benchmark advances the model.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class PacedBus implements RegisterBus {
+    private final SimulatedHTS221 device;
+    private final int clockFrequency;
+    private final long openNanos;
+    private boolean open;
+
+   /** Constructs new instance of this class.
+    * @param device Model running in virtual time.
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    */
+    public PacedBus(SimulatedHTS221 device, int clockFrequency){
+        this(device, clockFrequency, 0);
+    }
+
+   /** Constructs new instance of this class with a cost of opening.
+    * <p>Like {@link I2CRegisterBus}, the session is opened by the first
+    * transfer after {@link close()}, which then spins for openNanos, as
+    * DeviceManager.open would take.
+    * @param device Model running in virtual time.
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    * @param openNanos Time opening the session takes, ns.
+    */
+    public PacedBus(SimulatedHTS221 device, int clockFrequency, long openNanos){
+        this.device = device;
+        this.clockFrequency = clockFrequency;
+        this.openNanos = openNanos;
+        device.setClockFrequency(clockFrequency);
+    }
+
+   /** Returns the model behind the bus. */
+    public SimulatedHTS221 device(){
+        return device;
+    }
+
+    @Override
+    public void open(){
+        if (open) return;
+        spin(openNanos);
+        device.open();
+        open = true;
+    }
+
+    @Override
+    public int read(int subaddress, ByteBuffer dst) throws IOException{
+        open();
+        spin(SimulatedHTS221.transferNanos(true, dst.remaining(), clockFrequency));
+        return device.read(subaddress, dst);
+    }
+
+    @Override
+    public int write(int subaddress, ByteBuffer src) throws IOException{
+        open();
+        spin(SimulatedHTS221.transferNanos(false, src.remaining(), clockFrequency));
+        return device.write(subaddress, src);
+    }
+
+    @Override
+    public void close(){
+        open = false;
+        device.close();
+    }
+
+    private static void spin(long nanos){
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            // bus is busy
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Model bus that blocks the caller for as long as the real one takes.
+ *
+ * <p>Unlike {@link PacedBus} the caller is parked, not spinning, as it
+ * would be while the controller clocks the bits out by itself. So buses of
+ * many sensors run side by side even on a single core, which is what
+ * benchmarks of parallel buses need. The model should follow real time
+ * with transfers taking no time of their own. Parking overshoots by tens
+ * of microseconds, so transfers come out somewhat slower than on the wire.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class ParkedBus implements RegisterBus {
+    private final SimulatedHTS221 device;
+    private final int clockFrequency;
+
+   /** Constructs new instance of this class.
+    * @param device Model following real time.
+    * @param clockFrequency Either 100000 or 400000 Hz.
+    */
+    public ParkedBus(SimulatedHTS221 device, int clockFrequency){
+        this.device = device;
+        this.clockFrequency = clockFrequency;
+        device.setClockFrequency(0);
+    }
+
+    @Override
+    public void open(){
+        device.open();
+    }
+
+    @Override
+    public int read(int subaddress, ByteBuffer dst) throws IOException{
+        park(SimulatedHTS221.transferNanos(true, dst.remaining(), clockFrequency));
+        return device.read(subaddress, dst);
+    }
+
+    @Override
+    public int write(int subaddress, ByteBuffer src) throws IOException{
+        park(SimulatedHTS221.transferNanos(false, src.remaining(), clockFrequency));
+        return device.write(subaddress, src);
+    }
+
+    @Override
+    public void close(){
+        device.close();
+    }
+
+    private static void park(long nanos){
+        long end = System.nanoTime() + nanos;
+        long left;
+        while ((left = end - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.IOException;
+
+/**
+ * {@link benchmarks.PollBenchmark} operations on a sensor behind
+ * {@link ParkedBus}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class PollOps implements benchmarks.PollBenchmark.Ops {
+    private SensorHTS221 sensor;
+    private PollStrategy poll;
+
+    @Override
+    public void open(int odr, int timingError, String strategy) throws IOException{
+        switch (strategy) {
+            case "spin": poll = PollStrategy.spin(); break;
+            case "yielding": poll = PollStrategy.yielding(); break;
+            case "parking": poll = PollStrategy.parking(); break;
+            case "adaptive": poll = PollStrategy.adaptive(); break;
+            default: throw new IllegalArgumentException("Unknown strategy " + strategy + ".");
+        }
+        SimulatedHTS221 device = new SimulatedHTS221();
+        device.setTimingError(timingError);
+        sensor = new SensorHTS221(new ParkedBus(device, 400_000));
+        sensor.setODR(odr);
+        sensor.setPower(true);
+    }
+
+    @Override
+    public void close() throws IOException{
+        sensor.close();
+    }
+
+    @Override
+    public int read() throws IOException, InterruptedException{
+        return SensorHTS221.rawError(sensor.read(1_000_000_000L, poll));
+    }
+
+    @Override
+    public long getPolls(){
+        return poll.getPolls();
+    }
+
+    @Override
+    public long getSamples(){
+        return poll.getSamples();
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.IOException;
+
+/**
+ * {@link benchmarks.SensorBenchmark} operations on a sensor behind
+ * {@link PacedBus}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SensorOps implements benchmarks.SensorBenchmark.Ops {
+    // 12.5 Hz
+    private static final long PERIOD_NANOS = 80_000_000;
+    private static final ConfigHTS221 FAST = new ConfigHTS221.Builder()
+                        .setAVG(0, 0).setODR(3).build();
+    private static final ConfigHTS221 ACCURATE = new ConfigHTS221.Builder()
+                        .setAVG(7, 7).setODR(3).build();
+
+    private SimulatedHTS221 device;
+    private SensorHTS221 sensor;
+    private final SensorHTS221.Args args = new SensorHTS221.Args();
+
+    @Override
+    public void open(int clockFrequency, long openNanos) throws IOException{
+        device = new SimulatedHTS221(false);
+        sensor = new SensorHTS221(new PacedBus(device, clockFrequency, openNanos));
+        sensor.setODR(3);
+        sensor.setPower(true);
+    }
+
+    @Override
+    public void close() throws IOException{
+        sensor.close();
+    }
+
+    @Override
+    public void nextSample(){
+        device.advance(PERIOD_NANOS);
+    }
+
+    @Override
+    public boolean getTemperature() throws IOException{
+        return sensor.getTemperature(args);
+    }
+
+    @Override
+    public boolean getHumidity() throws IOException{
+        return sensor.getHumidity(args);
+    }
+
+    @Override
+    public boolean getSample() throws IOException{
+        return sensor.getSample(args);
+    }
+
+    @Override
+    public boolean getSampleCenti() throws IOException{
+        return sensor.getSampleCenti(args);
+    }
+
+    @Override
+    public long readRaw() throws IOException{
+        return sensor.readRaw();
+    }
+
+    @Override
+    public void setHeater(boolean enable) throws IOException{
+        sensor.setHeater(enable);
+    }
+
+    @Override
+    public void setODR(int rate) throws IOException{
+        sensor.setODR(rate);
+    }
+
+    @Override
+    public void setAVG(int rateTemp, int rateHum) throws IOException{
+        sensor.setAVG(rateTemp, rateHum);
+    }
+
+    @Override
+    public void apply(boolean accurate) throws IOException{
+        sensor.apply(accurate ? ACCURATE : FAST);
+    }
+
+    @Override
+    public boolean validateCalibration() throws IOException{
+        return sensor.validateCalibration();
+    }
+
+    @Override
+    public Object init() throws IOException{
+        return sensor.init();
+    }
+}
@@ -0,0 +1,46 @@
+import java.io.IOException;
+
+/**
+ * {@link benchmarks.SweepBenchmark} operations on sensors behind
+ * {@link ParkedBus}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SweepOps implements benchmarks.SweepBenchmark.Ops {
+    private SensorHTS221[] sensors;
+    private SensorHTS221.Args[] results;
+    private GroupHTS221 group;
+
+    @Override
+    public void open(int count, int clockFrequency) throws IOException{
+        sensors = new SensorHTS221[count];
+        results = new SensorHTS221.Args[count];
+        group = new GroupHTS221();
+        for (int i = 0; i < count; i++) {
+            sensors[i] = new SensorHTS221(new ParkedBus(new SimulatedHTS221(), clockFrequency));
+            sensors[i].setPower(true);
+            results[i] = new SensorHTS221.Args();
+            group.add(sensors[i]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        for (SensorHTS221 s : sensors) s.close();
+    }
+
+    @Override
+    public int sweep() throws IOException, InterruptedException{
+        return group.sweep(results);
+    }
+
+    @Override
+    public int sequential() throws IOException, InterruptedException{
+        int read = 0;
+        for (int i = 0; i < sensors.length; i++) {
+            sensors[i].oneShot();
+            if (sensors[i].getSample(results[i])) read++;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+/**
+ * Access to the driver from benchmarks.
+ *
+ * <p>The driver lives in the default package, which JMH does not accept
+ * for benchmarks and named packages cannot import. Every benchmark states
+ * what it needs as a nested Ops interface, implemented by a default
+ * package class of the same module and loaded by name.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+final class Adapters {
+
+    private Adapters(){
+    }
+
+   /** Creates the implementation of benchmark operations.
+    * @param name Name of the default package class.
+    * @param type Interface it implements.
+    * @return New instance.
+    */
+    static <T> T load(String name, Class<T> type){
+        try {
+            return type.cast(Class.forName(name).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Adapter " + name + " is missing.", e);
+        }
+    }
+}
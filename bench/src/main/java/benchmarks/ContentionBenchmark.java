@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Several threads reading one sensor through SharedHTS221.
+ *
+ * <p>Every call is a bus transaction run by the bus-owner thread; the
+ * locked variants do the same work on a second sensor under its monitor,
+ * as a baseline for the queue and future overhead. The model follows real
+ * time and holds the bus for the wire time of every transfer. Runs with 4
+ * threads, change it with -t.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+    /**
+     * Operations on a shared and a locked sensor, implemented in the
+     * default package by ContentionOps.
+     */
+    public interface Ops {
+
+       /** Constructs both sensors, powered at 12.5 Hz. */
+        void open(int clockFrequency) throws IOException;
+
+        void close() throws IOException;
+
+       /** Reads raw outputs on the bus-owner thread and waits for them. */
+        long sharedRead();
+
+       /** Sets the heater on the bus-owner thread and waits for it. */
+        void sharedSetHeater(boolean enable);
+
+       /** Reads raw outputs of the second sensor under its monitor. */
+        long lockedRead() throws IOException;
+
+       /** Sets the heater of the second sensor under its monitor. */
+        void lockedSetHeater(boolean enable) throws IOException;
+    }
+
+    /**
+     * Per thread heater state.
+     */
+    @State(Scope.Thread)
+    public static class Step {
+        int step;
+    }
+
+    @Param({"100000", "400000"})
+    public int clockFrequency;
+
+    private Ops ops;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Adapters.load("ContentionOps", Ops.class);
+        ops.open(clockFrequency);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ops.close();
+    }
+
+    @Benchmark
+    public long sharedRead(){
+        return ops.sharedRead();
+    }
+
+    @Benchmark
+    public void sharedSetHeater(Step s){
+        ops.sharedSetHeater((++s.step & 1) != 0);
+    }
+
+    @Benchmark
+    public long lockedRead() throws IOException {
+        return ops.lockedRead();
+    }
+
+    @Benchmark
+    public void lockedSetHeater(Step s) throws IOException {
+        ops.lockedSetHeater((++s.step & 1) != 0);
+    }
+}
@@ -0,0 +1,108 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of converting raw outputs, float against Q16.16 fixed point.
+ *
+ * <p>No bus is involved, so the clock rate does not matter here. Raw values
+ * are random and taken in turn, so results cannot be folded to constants.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+    /**
+     * Conversions of a calibrated sensor, implemented in the default
+     * package by ConversionOps.
+     */
+    public interface Ops {
+
+       /** Constructs the sensor on a model and reads its calibration. */
+        void open() throws IOException;
+
+        float toDegrees(short raw);
+
+        float toRH(short raw);
+
+        int toCentiDegrees(short raw);
+
+        int toCentiRH(short raw);
+
+        void toDegrees(short[] raw, float[] out);
+
+        void toRH(short[] raw, float[] out);
+    }
+
+    private static final int COUNT = 1024;
+
+    private Ops ops;
+    private final short[] raw = new short[COUNT];
+    private final float[] out = new float[COUNT];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Adapters.load("ConversionOps", Ops.class);
+        ops.open();
+        Random random = new Random(221);
+        for (int i = 0; i < COUNT; i++) raw[i] = (short) random.nextInt();
+    }
+
+    private short nextRaw(){
+        return raw[next++ & (COUNT - 1)];
+    }
+
+    @Benchmark
+    public float toDegrees(){
+        return ops.toDegrees(nextRaw());
+    }
+
+    @Benchmark
+    public float toRH(){
+        return ops.toRH(nextRaw());
+    }
+
+    @Benchmark
+    public int toCentiDegrees(){
+        return ops.toCentiDegrees(nextRaw());
+    }
+
+    @Benchmark
+    public int toCentiRH(){
+        return ops.toCentiRH(nextRaw());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public float[] toDegreesArray(){
+        ops.toDegrees(raw, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public float[] toRHArray(){
+        ops.toRH(raw, out);
+        return out;
+    }
+}
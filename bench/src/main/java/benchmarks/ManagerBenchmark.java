@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ManagerHTS221 scaling from 1 to 64 sensors.
+ *
+ * <p>Sensors are in one shot mode with least averaging, so every pass of a
+ * worker publishes a new sample of each of its sensors. sweep measures the
+ * time until all sensors have published again: with every sensor on its own
+ * bus it should stay close to the time of one sensor, with all of them on
+ * one bus it grows with their number. snapshot measures copying the latest
+ * samples of all sensors while the workers run.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ManagerBenchmark {
+
+    /**
+     * Manager of simulated sensors, implemented in the default package by
+     * ManagerOps.
+     */
+    public interface Ops {
+
+       /** Adds the sensors and starts the workers without a pause.
+        * @param sensors Number of sensors.
+        * @param buses Number of buses they are spread over, round robin.
+        * @param clockFrequency Bus clock rate, Hz.
+        */
+        void start(int sensors, int buses, int clockFrequency) throws IOException;
+
+        void close() throws IOException, InterruptedException;
+
+       /** Waits until every sensor has published a sample after the call. */
+        void awaitSweep();
+
+       /** Copies latest samples of all sensors.
+        * @return Number of sensors that have published.
+        */
+        int snapshot();
+    }
+
+    @Param({"1", "4", "16", "64"})
+    public int sensors;
+
+    @Param({"perBus", "oneBus"})
+    public String layout;
+
+    @Param({"100000", "400000"})
+    public int clockFrequency;
+
+    private Ops ops;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Adapters.load("ManagerOps", Ops.class);
+        ops.start(sensors, layout.equals("perBus") ? sensors : 1, clockFrequency);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        ops.close();
+    }
+
+    @Benchmark
+    public void sweep(){
+        ops.awaitSweep();
+    }
+
+    @Benchmark
+    public int snapshot(){
+        return ops.snapshot();
+    }
+}
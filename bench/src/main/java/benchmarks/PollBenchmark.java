@@ -0,0 +1,125 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency, wasted STATUS_REG checks and CPU time of the poll strategies.
+ *
+ * <p>Every operation is SensorHTS221.read(long, PollStrategy) waiting for
+ * one sample, either after triggering one shot (odr 0, default averaging)
+ * or in continuous mode at 12.5 Hz (odr 3). The model follows real time,
+ * with samples showing up either when the driver expects them or 5 %
+ * later, as with a slow internal oscillator; only then do the strategies
+ * differ. After a one shot the transfer of the first check itself covers
+ * that much, so the difference shows in continuous mode. The bus runs at
+ * 400 kHz and blocks for the wire time of every transfer without using CPU.
+ * <p>Besides time per sample the results give, per iteration, polls and
+ * samples counted by the strategy and the CPU time of the reading thread;
+ * (polls - samples) / samples is the number of wasted checks per sample.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PollBenchmark {
+
+    /**
+     * Sensor read with a poll strategy, implemented in the default package
+     * by PollOps.
+     */
+    public interface Ops {
+
+       /** Constructs the sensor, powered at the given rate.
+        * @param odr Output data rate, see SensorHTS221.setODR(int).
+        * @param timingError Model timing off nominal, percent.
+        * @param strategy Name of a PollStrategy preset.
+        */
+        void open(int odr, int timingError, String strategy) throws IOException;
+
+        void close() throws IOException;
+
+       /** Waits for one sample, 1 s at most.
+        * @return Error code of the read, 0 if a sample was taken.
+        */
+        int read() throws IOException, InterruptedException;
+
+        long getPolls();
+
+        long getSamples();
+    }
+
+    /**
+     * Counters reported next to the time per sample.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long polls;
+        public long samples;
+        public long cpuMicros;
+
+        @Setup(Level.Iteration)
+        public void clear(){
+            polls = 0;
+            samples = 0;
+            cpuMicros = 0;
+        }
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Param({"spin", "yielding", "parking", "adaptive"})
+    public String strategy;
+
+    @Param({"0", "3"})
+    public int odr;
+
+    @Param({"0", "5"})
+    public int timingError;
+
+    private Ops ops;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Adapters.load("PollOps", Ops.class);
+        ops.open(odr, timingError, strategy);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ops.close();
+    }
+
+    @Benchmark
+    public int read(Counters counters) throws IOException, InterruptedException {
+        long polls = ops.getPolls();
+        long samples = ops.getSamples();
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        int err = ops.read();
+        counters.cpuMicros += (THREADS.getCurrentThreadCpuTime() - cpu) / 1000;
+        counters.polls += ops.getPolls() - polls;
+        counters.samples += ops.getSamples() - samples;
+        return err;
+    }
+}
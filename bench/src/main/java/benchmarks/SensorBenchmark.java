@@ -0,0 +1,154 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency and allocation of sensor operations over the bus.
+ *
+ * <p>The sensor runs on {@link SimulatedHTS221} behind a bus that takes as
+ * long as the real one at the given clock rate. Reads advance the model by
+ * one output period first, so every read finds new data and takes the full
+ * path. Run with {@link Main} to get bytes allocated per operation.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorBenchmark {
+
+    /**
+     * Sensor operations, implemented in the default package by SensorOps.
+     */
+    public interface Ops {
+
+       /** Constructs the sensor, powered at 12.5 Hz.
+        * @param clockFrequency Bus clock rate, Hz.
+        * @param openNanos Time opening the bus session takes, ns.
+        */
+        void open(int clockFrequency, long openNanos) throws IOException;
+
+       /** Closes the sensor, the next access opens the bus session again. */
+        void close() throws IOException;
+
+       /** Moves the model to the next sample. */
+        void nextSample();
+
+        boolean getTemperature() throws IOException;
+
+        boolean getHumidity() throws IOException;
+
+        boolean getSample() throws IOException;
+
+        boolean getSampleCenti() throws IOException;
+
+        long readRaw() throws IOException;
+
+        void setHeater(boolean enable) throws IOException;
+
+        void setODR(int rate) throws IOException;
+
+        void setAVG(int rateTemp, int rateHum) throws IOException;
+
+       /** Applies one of two presets which differ in AV_CONF only. */
+        void apply(boolean accurate) throws IOException;
+
+        boolean validateCalibration() throws IOException;
+
+       /** Identifies the sensor and reads calibration again. */
+        Object init() throws IOException;
+    }
+
+    @Param({"100000", "400000"})
+    public int clockFrequency;
+
+    private Ops ops;
+    private int step;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Adapters.load("SensorOps", Ops.class);
+        ops.open(clockFrequency, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ops.close();
+    }
+
+    @Benchmark
+    public boolean getTemperature() throws IOException {
+        ops.nextSample();
+        return ops.getTemperature();
+    }
+
+    @Benchmark
+    public boolean getHumidity() throws IOException {
+        ops.nextSample();
+        return ops.getHumidity();
+    }
+
+    @Benchmark
+    public boolean getSample() throws IOException {
+        ops.nextSample();
+        return ops.getSample();
+    }
+
+    @Benchmark
+    public boolean getSampleCenti() throws IOException {
+        ops.nextSample();
+        return ops.getSampleCenti();
+    }
+
+    @Benchmark
+    public long readRaw() throws IOException {
+        ops.nextSample();
+        return ops.readRaw();
+    }
+
+    @Benchmark
+    public void setHeater() throws IOException {
+        ops.setHeater((++step & 1) != 0);
+    }
+
+    @Benchmark
+    public void setODR() throws IOException {
+        ops.setODR(2 + (++step & 1));
+    }
+
+    @Benchmark
+    public void setAVG() throws IOException {
+        ops.setAVG(++step & 7, step & 7);
+    }
+
+    @Benchmark
+    public void apply() throws IOException {
+        ops.apply((++step & 1) != 0);
+    }
+
+    @Benchmark
+    public boolean validateCalibration() throws IOException {
+        return ops.validateCalibration();
+    }
+
+    @Benchmark
+    public Object init() throws IOException {
+        return ops.init();
+    }
+}
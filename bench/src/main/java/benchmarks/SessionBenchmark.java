@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read latency with the bus session kept open against opened per read.
+ *
+ * <p>perRead closes the sensor after every read, so each read pays for
+ * opening the device, as every register access did before the session was
+ * kept. The model cannot know what DeviceManager.open costs on the board;
+ * pass the measured time with -p openMicros=... to compare for it.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionBenchmark {
+
+    @Param({"100000", "400000"})
+    public int clockFrequency;
+
+    @Param({"200", "1000"})
+    public long openMicros;
+
+    private SensorBenchmark.Ops ops;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Adapters.load("SensorOps", SensorBenchmark.Ops.class);
+        ops.open(clockFrequency, TimeUnit.MICROSECONDS.toNanos(openMicros));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ops.close();
+    }
+
+    @Benchmark
+    public long kept() throws IOException {
+        ops.nextSample();
+        return ops.readRaw();
+    }
+
+    @Benchmark
+    public long perRead() throws IOException {
+        ops.nextSample();
+        long raw = ops.readRaw();
+        ops.close();
+        return raw;
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One shot of a sensor group, GroupHTS221 sweep against one sensor after
+ * another.
+ *
+ * <p>sequential does oneShot() and getSample(Args) on each sensor in turn,
+ * so every sensor waits its own conversion. sweep triggers all of them,
+ * waits once and reads all. Sensors keep their default averaging, 2.2 ms
+ * conversion, and each sits on a bus of its own which blocks for the wire
+ * time of every transfer.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SweepBenchmark {
+
+    /**
+     * Group of one shot sensors, implemented in the default package by
+     * SweepOps.
+     */
+    public interface Ops {
+
+       /** Constructs the sensors, powered in one shot mode. */
+        void open(int sensors, int clockFrequency) throws IOException;
+
+        void close() throws IOException;
+
+       /** Samples all sensors with GroupHTS221.
+        * @return Number of sensors read.
+        */
+        int sweep() throws IOException, InterruptedException;
+
+       /** Samples all sensors one after another.
+        * @return Number of sensors read.
+        */
+        int sequential() throws IOException, InterruptedException;
+    }
+
+    @Param({"1", "4", "16"})
+    public int sensors;
+
+    @Param({"100000", "400000"})
+    public int clockFrequency;
+
+    private Ops ops;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Adapters.load("SweepOps", Ops.class);
+        ops.open(sensors, clockFrequency);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ops.close();
+    }
+
+    @Benchmark
+    public int sweep() throws IOException, InterruptedException {
+        return ops.sweep();
+    }
+
+    @Benchmark
+    public int sequential() throws IOException, InterruptedException {
+        return ops.sequential();
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Steady state sampling and configuration allocate nothing.
+ *
+ * <p>Runs the sensor on {@link SimulatedHTS221} in virtual time, warms the
+ * path up, then counts bytes allocated by the test thread over many calls,
+ * see com.sun.management.ThreadMXBean. A few bytes are tolerated for the
+ * counter itself; one allocation per call would show as kilobytes in
+ * every round.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class AllocationTest {
+    private static final int WARMUP = 20_000;
+    private static final int CALLS = 10_000;
+    private static final int ROUNDS = 3;
+    // less than one byte per ten calls
+    private static final long SLACK = CALLS / 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Operation under test.
+     */
+    private interface Call {
+        void run(int i) throws IOException;
+    }
+
+    private SimulatedHTS221 device;
+    private SensorHTS221 sensor;
+    private final SensorHTS221.Args args = new SensorHTS221.Args();
+
+    @Before
+    public void setUp() throws IOException {
+        assertTrue("allocation counting is not supported", THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        device = new SimulatedHTS221(false);
+        sensor = new SensorHTS221(device);
+        sensor.setODR(3);
+        sensor.setPower(true);
+    }
+
+    @Test
+    public void getSample() throws IOException {
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                device.advance(80_000_000);
+                assertTrue(args.msg, sensor.getSample(args));
+            }
+        });
+    }
+
+    @Test
+    public void getSampleCenti() throws IOException {
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                device.advance(80_000_000);
+                assertTrue(args.msg, sensor.getSampleCenti(args));
+            }
+        });
+    }
+
+    @Test
+    public void getSampleRaw() throws IOException {
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                device.advance(80_000_000);
+                assertTrue(args.msg, sensor.getSampleRaw(args));
+            }
+        });
+    }
+
+    @Test
+    public void getTemperatureAndHumidity() throws IOException {
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                device.advance(80_000_000);
+                assertTrue(args.msg, sensor.getTemperature(args));
+                assertTrue(args.msg, sensor.getHumidity(args));
+            }
+        });
+    }
+
+    @Test
+    public void readRaw() throws IOException {
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                device.advance(80_000_000);
+                assertEquals(0, SensorHTS221.rawError(sensor.readRaw()));
+            }
+        });
+    }
+
+    @Test
+    public void noNewData() throws IOException {
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                sensor.getSample(args);
+            }
+        });
+    }
+
+    @Test
+    public void setters() throws IOException {
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                sensor.setAVG(i & 7, i >> 3 & 7);
+                sensor.setODR(2 + (i & 1));
+                sensor.setBDU((i & 1) != 0);
+                sensor.setHeater((i & 1) != 0);
+                sensor.setPushPull((i & 1) != 0);
+                sensor.setDrDyOutput((i & 1) != 0);
+            }
+        });
+    }
+
+    @Test
+    public void apply() throws IOException {
+        final ConfigHTS221[] configs = {
+            new ConfigHTS221.Builder().setAVG(0, 0).setODR(3).setPower(true).build(),
+            new ConfigHTS221.Builder().setAVG(7, 7).setODR(2).setPower(true).build()
+        };
+        assertNoAllocation(new Call() {
+            @Override
+            public void run(int i) throws IOException {
+                sensor.apply(configs[i & 1]);
+            }
+        });
+    }
+
+    // Takes the best of a few rounds: one-off allocations of the runtime,
+    // e.g. on recompilation, show in one round, allocation per call in all.
+    private static void assertNoAllocation(Call call) throws IOException {
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP; i++) call.run(i);
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && allocated > SLACK; round++) {
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < CALLS; i++) call.run(i);
+            allocated = Math.min(allocated, THREADS.getThreadAllocatedBytes(thread) - before);
+        }
+        assertTrue(allocated + " bytes allocated in " + CALLS + " calls", allocated <= SLACK);
+    }
+}
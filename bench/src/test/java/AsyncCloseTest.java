@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * close() completes asynchronous reads still waiting for data.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class AsyncCloseTest {
+
+    @Test
+    public void closeFailsWaitingRead() throws Exception {
+        SimulatedHTS221 device = new SimulatedHTS221();
+        SensorHTS221 sensor = new SensorHTS221(device);
+        sensor.setODR(1);       // first sample in 1 s
+        sensor.setPower(true);
+        CompletableFuture<SensorHTS221.Sample> read = sensor.readAsync();
+        Thread.sleep(20);
+        sensor.close();
+        assertClosed(read);
+        long transactions = device.getTransactions();
+        Thread.sleep(300);
+        assertTrue("bus used after close", device.getTransactions() == transactions);
+    }
+
+    @Test
+    public void closeFailsQueuedReads() throws Exception {
+        SensorHTS221 sensor = new SensorHTS221(new SimulatedHTS221());
+        sensor.setPower(true);  // one shot
+        CompletableFuture<?>[] reads = new CompletableFuture<?>[8];
+        for (int i = 0; i < reads.length; i++) reads[i] = sensor.readAsync();
+        sensor.close();
+        for (CompletableFuture<?> read : reads) {
+            try {
+                read.get(1, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    @Test
+    public void usableAfterClose() throws Exception {
+        SensorHTS221 sensor = new SensorHTS221(new SimulatedHTS221());
+        sensor.setPower(true);
+        sensor.readAsync();
+        sensor.close();
+        sensor.readAsync().get(1, TimeUnit.SECONDS);
+        sensor.close();
+    }
+
+    private static void assertClosed(CompletableFuture<?> read) throws Exception {
+        try {
+            read.get(1, TimeUnit.SECONDS);
+            fail("read completed without data");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), e.getCause() instanceof IOException);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Calibration cache that can't be written doesn't fail the sensor.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class CacheWriteTest {
+
+    @Test
+    public void constructsWithUnwritableCache() throws IOException {
+        Path dir = Files.createTempDirectory("hts221");
+        CalibrationCache cache = new CalibrationCache(dir.resolve("missing").resolve("cache.properties"));
+        SensorHTS221 sensor = new SensorHTS221(new SimulatedHTS221(false), cache, "i2c1");
+        assertTrue(sensor.isCalibrationValidated());
+        assertNotNull(sensor.getCacheError());
+        // calibration of the device in use: 20 degC at -100
+        assertTrue(Math.abs(sensor.toDegrees((short) -100) - 20) < 0.01);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void validatesWithUnwritableCache() throws IOException {
+        Path dir = Files.createTempDirectory("hts221");
+        Path file = dir.resolve("cache.properties");
+        try {
+            // entry of another sensor, H0_rH_x2 differs
+            SimulatedHTS221 device = new SimulatedHTS221(false);
+            byte[] block = new byte[16];
+            for (int i = 0; i < 16; i++) block[i] = device.peek(0x30 + i);
+            block[0]++;
+            CalibrationCache stale = new CalibrationCache(file);
+            stale.put("i2c1", block);
+            Files.delete(file);
+            Files.delete(dir);      // nowhere to write the replaced entry
+            SensorHTS221 sensor = new SensorHTS221(device, stale, "i2c1");
+            assertFalse(sensor.isCalibrationValidated());
+            assertFalse(sensor.validateCalibration());
+            assertTrue(sensor.isCalibrationValidated());
+            assertNotNull(sensor.getCacheError());
+            // calibration of the device in use: 33 %rH at -2000
+            assertTrue(Math.abs(sensor.toRH((short) -2000) - 33) < 0.01);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Q16.16 conversion against float, over every raw output value.
+ *
+ * <p>{@link SensorHTS221#toCentiDegrees(short)} and
+ * {@link SensorHTS221#toCentiRH(short)} should stay within one hundredth
+ * of the float conversions rounded to hundredths, for the calibration of
+ * {@link SimulatedHTS221} and for a few others given through
+ * {@link CalibrationCache}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class CentiConversionTest {
+
+    @Test
+    public void simulatorCalibration() throws IOException {
+        check(new SensorHTS221(new SimulatedHTS221(false)));
+    }
+
+    @Test
+    public void steepCalibration() throws IOException {
+        // 0-100 %rH over 1000 counts, 0-120 degC over 500 counts
+        check(withCalibration(0, 200, 0, 960, 0, 1000, 0, 500));
+    }
+
+    @Test
+    public void flatCalibration() throws IOException {
+        // 20-80 %rH over 30000 counts, 0-85 degC over 60000 counts
+        check(withCalibration(40, 160, 0, 680, -15000, 15000, -30000, 30000));
+    }
+
+    @Test
+    public void negativeSlopeCalibration() throws IOException {
+        check(withCalibration(50, 150, 80, 400, 6000, -6000, 1000, -1000));
+    }
+
+    private static void check(SensorHTS221 sensor){
+        int worstT = 0;
+        int worstH = 0;
+        for (int i = Short.MIN_VALUE; i <= Short.MAX_VALUE; i++) {
+            short raw = (short) i;
+            int t = (int) Math.abs(sensor.toCentiDegrees(raw) - Math.round(sensor.toDegrees(raw) * 100.0));
+            int h = (int) Math.abs(sensor.toCentiRH(raw) - Math.round(sensor.toRH(raw) * 100.0));
+            if (t > worstT) worstT = t;
+            if (h > worstH) worstH = h;
+        }
+        assertTrue("temperature off by " + worstT + " hundredths", worstT <= 1);
+        assertTrue("humidity off by " + worstH + " hundredths", worstH <= 1);
+    }
+
+    // Sensor on the model with calibration taken from a cache entry.
+    private static SensorHTS221 withCalibration(int h0x2, int h1x2, int t0x8, int t1x8,
+            int h0Out, int h1Out, int t0Out, int t1Out) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        block.put(0, (byte) h0x2);
+        block.put(1, (byte) h1x2);
+        block.put(2, (byte) t0x8);
+        block.put(3, (byte) t1x8);
+        block.put(5, (byte) ((t0x8 >> 8 & 0b11) | (t1x8 >> 8 & 0b11) << 2));
+        block.putShort(6, (short) h0Out);
+        block.putShort(10, (short) h1Out);
+        block.putShort(12, (short) t0Out);
+        block.putShort(14, (short) t1Out);
+
+        Path file = Files.createTempFile("hts221", ".properties");
+        try {
+            CalibrationCache cache = new CalibrationCache(file);
+            cache.put("test", block.array());
+            return new SensorHTS221(new SimulatedHTS221(false), cache, "test");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Interrupt-driven acquisition over the DRDY line of {@link SimulatedHTS221}.
+ *
+ * <p>The model follows real time and a ticker thread evaluates it every
+ * millisecond, so the line fires without anybody accessing the bus.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class DataReadyTest {
+    private SimulatedHTS221 device;
+    private SensorHTS221 sensor;
+    private Thread ticker;
+
+    @Before
+    public void setUp() throws IOException {
+        device = new SimulatedHTS221();
+        sensor = new SensorHTS221(device);
+        sensor.setODR(3);       // 12.5 Hz
+        sensor.setPower(true);
+        ticker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    device.tick();
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ticker.interrupt();
+        ticker.join();
+        sensor.close();
+    }
+
+    @Test
+    public void deliversSamples() throws Exception {
+        final AtomicInteger samples = new AtomicInteger();
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        sensor.setDataReadyListener(device.getDataReadyLine(), new SensorHTS221.DataReadyListener() {
+            @Override
+            public void dataReady(SensorHTS221.Args args) {
+                if (args.err == 0 && Math.abs(args.Temperature - 22) < 0.1) samples.incrementAndGet();
+                thread.set(Thread.currentThread());
+            }
+        });
+        Thread.sleep(500);
+        assertTrue(samples.get() + " samples in 500 ms", samples.get() >= 4);
+        assertNotSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test
+    public void rejectsOtherThreads() throws Exception {
+        sensor.setDataReadyListener(device.getDataReadyLine(), new SensorHTS221.DataReadyListener() {
+            @Override
+            public void dataReady(SensorHTS221.Args args) {
+            }
+        });
+        try {
+            sensor.getSample(new SensorHTS221.Args());
+            fail("read while the listener owns the sensor");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            sensor.setHeater(true);
+            fail("write while the listener owns the sensor");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        sensor.removeDataReadyListener();
+        assertEquals(0, device.peek(0x22) & 0b0000_0100);
+        sensor.setHeater(true);
+    }
+
+    @Test
+    public void listenerMayConfigure() throws Exception {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final AtomicInteger calls = new AtomicInteger();
+        sensor.setDataReadyListener(device.getDataReadyLine(), new SensorHTS221.DataReadyListener() {
+            @Override
+            public void dataReady(SensorHTS221.Args args) {
+                try {
+                    sensor.setHeater(calls.incrementAndGet() % 2 == 0);
+                } catch (IOException | RuntimeException e) {
+                    error.set(e);
+                }
+            }
+        });
+        Thread.sleep(300);
+        assertTrue(calls.get() > 0);
+        assertEquals(null, error.get());
+    }
+
+    @Test
+    public void failedLineIsNotKept() throws Exception {
+        InterruptLine broken = new InterruptLine() {
+            @Override
+            public void setListener(Runnable listener) throws IOException {
+                throw new IOException("pin is taken");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            sensor.setDataReadyListener(broken, new SensorHTS221.DataReadyListener() {
+                @Override
+                public void dataReady(SensorHTS221.Args args) {
+                }
+            });
+            fail("listener set on a broken line");
+        } catch (IOException e) {
+            assertEquals("pin is taken", e.getMessage());
+        }
+        assertEquals(0, device.peek(0x22) & 0b0000_0100);
+        sensor.getSample(new SensorHTS221.Args());     // not owned by the reader thread
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Bring-up of the sensor by the constructor, see {@link SensorHTS221#init()}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class InitTest {
+
+    // Model bus which keeps track of the session and can answer a wrong WHO_AM_I.
+    private static final class TrackedBus implements RegisterBus {
+        final SimulatedHTS221 device = new SimulatedHTS221();
+        boolean open;
+        int wrongIds;
+
+        @Override
+        public void open(){
+            open = true;
+            device.open();
+        }
+
+        @Override
+        public int read(int subaddress, ByteBuffer dst) throws IOException {
+            open();
+            int pos = dst.position();
+            int n = device.read(subaddress, dst);
+            if ((subaddress & 0x7F) == 0x0F && wrongIds > 0) {
+                wrongIds--;
+                dst.put(pos, (byte) 0xFF);
+            }
+            return n;
+        }
+
+        @Override
+        public int write(int subaddress, ByteBuffer src) throws IOException {
+            open();
+            return device.write(subaddress, src);
+        }
+
+        @Override
+        public void close(){
+            open = false;
+            device.close();
+        }
+    }
+
+    @Test
+    public void rebootsOnWrongId() throws IOException {
+        TrackedBus bus = new TrackedBus();
+        bus.wrongIds = 1;
+        SensorHTS221 sensor = new SensorHTS221(bus);
+        assertTrue(sensor.getStartup().rebooted);
+        assertEquals((byte) 0xBC, sensor.getStartup().whoAmI);
+    }
+
+    @Test
+    public void closesBusOnFailure() {
+        TrackedBus bus = new TrackedBus();
+        bus.wrongIds = 2;
+        try {
+            new SensorHTS221(bus);
+            fail("constructed with a wrong WHO_AM_I");
+        } catch (IOException e) {
+            assertEquals("WHO_AM_I is 0xFF instead of 0xBC after reboot.", e.getMessage());
+        }
+        assertFalse("bus left open", bus.open);
+    }
+}
@@ -0,0 +1,44 @@
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A sensor failing with an unexpected exception doesn't stop the others
+ * sampled by the same worker.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class ManagerErrorTest {
+
+    @Test
+    public void survivesOwnedSensor() throws Exception {
+        SimulatedHTS221 device = new SimulatedHTS221();
+        SensorHTS221 owned = new SensorHTS221(device);
+        owned.setPower(true);
+        SensorHTS221 healthy = new SensorHTS221(new SimulatedHTS221());
+        healthy.setPower(true);
+
+        ManagerHTS221 manager = new ManagerHTS221();
+        int bad = manager.add(owned, 1);
+        int good = manager.add(healthy, 1);
+        // reads from the worker throw IllegalStateException from now on
+        owned.setDataReadyListener(device.getDataReadyLine(), new SensorHTS221.DataReadyListener() {
+            @Override
+            public void dataReady(SensorHTS221.Args args) {
+            }
+        });
+        manager.start(10);
+        Thread.sleep(200);
+        long sequence = manager.getSlot(good).getSequence();
+        Thread.sleep(100);
+        manager.stop();
+
+        assertTrue(manager.getErrors(bad) + " errors", manager.getErrors(bad) > 5);
+        assertEquals(0, manager.getErrors(good));
+        assertTrue("healthy sensor stopped publishing", manager.getSlot(good).getSequence() > sequence);
+        assertEquals(0, manager.getSlot(bad).getSequence());
+
+        owned.removeDataReadyListener();
+        manager.close();
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * An unexpected exception stops the sampler visibly instead of leaving it
+ * reported as running.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SamplerErrorTest {
+
+    // Model bus which reads fail with a runtime exception once broken.
+    private static final class BrokenBus implements RegisterBus {
+        final SimulatedHTS221 device = new SimulatedHTS221();
+        volatile boolean broken;
+
+        @Override
+        public void open(){
+            device.open();
+        }
+
+        @Override
+        public int read(int subaddress, ByteBuffer dst) throws IOException {
+            if (broken) throw new IllegalStateException("driver bug");
+            return device.read(subaddress, dst);
+        }
+
+        @Override
+        public int write(int subaddress, ByteBuffer src) throws IOException {
+            return device.write(subaddress, src);
+        }
+
+        @Override
+        public void close(){
+            device.close();
+        }
+    }
+
+    @Test
+    public void stopsOnUnexpectedException() throws Exception {
+        BrokenBus bus = new BrokenBus();
+        SensorHTS221 sensor = new SensorHTS221(bus);
+        SamplerHTS221 sampler = new SamplerHTS221(sensor, 16);
+        sampler.start(3);
+        Thread.sleep(200);
+        assertTrue(sampler.getLatest().getSequence() > 0);
+
+        bus.broken = true;
+        for (int i = 0; i < 100 && sampler.isRunning(); i++) Thread.sleep(10);
+        assertFalse(sampler.isRunning());
+        assertEquals("driver bug", sampler.getFailure().getMessage());
+        assertEquals(0, sampler.getErrors());
+        sampler.stop();
+
+        bus.broken = false;
+        sampler.start(3);
+        assertNull(sampler.getFailure());
+        long sequence = sampler.getLatest().getSequence();
+        Thread.sleep(200);
+        assertTrue(sampler.isRunning());
+        assertTrue(sampler.getLatest().getSequence() > sequence);
+        sampler.stop();
+        sensor.close();
+    }
+}
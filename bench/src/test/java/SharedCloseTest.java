@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Every future of SharedHTS221 completes, whatever happens to the
+ * bus-owner thread.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SharedCloseTest {
+
+    private static final SharedHTS221.Operation<Long> READ_RAW = new SharedHTS221.Operation<Long>() {
+        @Override
+        public Long run(SensorHTS221 sensor) throws Exception {
+            return sensor.readRaw();
+        }
+    };
+
+    @Test
+    public void submitWhileClosing() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            final SharedHTS221 shared = new SharedHTS221(new SensorHTS221(new SimulatedHTS221(false)));
+            final List<CompletableFuture<Long>> futures = new ArrayList<>();
+            Thread submitter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 50; i++) futures.add(shared.submit(READ_RAW));
+                }
+            });
+            submitter.start();
+            shared.close();
+            submitter.join();
+            for (CompletableFuture<Long> future : futures) assertDone(future);
+        }
+    }
+
+    @Test
+    public void errorFailsQueued() throws Exception {
+        SharedHTS221 shared = new SharedHTS221(new SensorHTS221(new SimulatedHTS221(false)));
+        final CountDownLatch release = new CountDownLatch(1);
+        final Error error = new Error("test");
+        CompletableFuture<Void> failing = shared.submit(new SharedHTS221.Operation<Void>() {
+            @Override
+            public Void run(SensorHTS221 sensor) throws Exception {
+                release.await();
+                throw error;
+            }
+        });
+        CompletableFuture<Long> queued = shared.submit(READ_RAW);
+        release.countDown();
+        try {
+            failing.get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+        assertFailed(queued);
+        assertFailed(shared.submit(READ_RAW));
+        shared.close();
+    }
+
+    private static void assertDone(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static void assertFailed(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("completed normally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BOOT and ONE_SHOT that never clear are reported, not waited out.
+ *
+ * <p>The sensor runs on {@link SimulatedHTS221} behind a bus which shows
+ * some bits of CTRL_REG2 as set whatever the model says, as a stuck device
+ * would.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class StuckBitTest {
+
+    // Model bus with bits of CTRL_REG2 stuck at 1.
+    private static final class StuckBus implements RegisterBus {
+        final SimulatedHTS221 device = new SimulatedHTS221();
+        int stuck;
+
+        @Override
+        public void open(){
+            device.open();
+        }
+
+        @Override
+        public int read(int subaddress, ByteBuffer dst) throws IOException {
+            int pos = dst.position();
+            int n = device.read(subaddress, dst);
+            // position of CTRL_REG2 in dst, reads of several registers auto-increment
+            int index = 0x21 - (subaddress & 0x7F);
+            boolean increment = (subaddress & 0x80) != 0;
+            if (index == 0 || increment && index > 0 && index < n) {
+                dst.put(pos + index, (byte) (dst.get(pos + index) | stuck));
+            }
+            return n;
+        }
+
+        @Override
+        public int write(int subaddress, ByteBuffer src) throws IOException {
+            return device.write(subaddress, src);
+        }
+
+        @Override
+        public void close(){
+            device.close();
+        }
+    }
+
+    @Test
+    public void oneShotCompletes() throws Exception {
+        StuckBus bus = new StuckBus();
+        SensorHTS221 sensor = new SensorHTS221(bus);
+        sensor.setPower(true);
+        sensor.oneShot();
+        SensorHTS221.Args args = new SensorHTS221.Args();
+        assertTrue(args.msg, sensor.getSample(args));
+    }
+
+    @Test
+    public void oneShotStuck() throws Exception {
+        StuckBus bus = new StuckBus();
+        SensorHTS221 sensor = new SensorHTS221(bus);
+        sensor.setPower(true);
+        bus.stuck = 0b0000_0001;
+        try {
+            sensor.oneShot();
+            fail("oneShot() returned with ONE_SHOT set");
+        } catch (IOException e) {
+            assertEquals("ONE_SHOT bit is still set after 50 ms.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rebootStuck() throws Exception {
+        StuckBus bus = new StuckBus();
+        SensorHTS221 sensor = new SensorHTS221(bus);
+        bus.stuck = 0b1000_0000;
+        try {
+            sensor.reboot();
+            fail("reboot() returned with BOOT set");
+        } catch (IOException e) {
+            assertEquals("BOOT bit is still set after 100 ms.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Sweeps over sensors whose conversions finish later than the datasheet
+ * timing, see {@link SimulatedHTS221#setTimingError(int)}.
+ *
+ * @author Leonid Burdikov loebrud@icloud.com
+ */
+public class SweepTest {
+    private static final int COUNT = 4;
+
+    private static SimulatedHTS221 device(int timingError){
+        SimulatedHTS221 device = new SimulatedHTS221();
+        device.setTimingError(timingError);
+        return device;
+    }
+
+    private static SensorHTS221.Args[] results(){
+        SensorHTS221.Args[] results = new SensorHTS221.Args[COUNT];
+        for (int i = 0; i < COUNT; i++) results[i] = new SensorHTS221.Args();
+        return results;
+    }
+
+    private static void setUp(SensorHTS221 sensor) throws IOException{
+        sensor.setAVG(7, 7);    // about 20 ms conversion
+        sensor.setPower(true);
+    }
+
+    private static void assertRead(int read, SensorHTS221.Args[] results){
+        for (SensorHTS221.Args args : results) assertEquals(args.msg, 0, args.err);
+        assertEquals(COUNT, read);
+    }
+
+    @Test
+    public void groupWaitsForSlowConversion() throws Exception {
+        GroupHTS221 group = new GroupHTS221();
+        SensorHTS221[] sensors = new SensorHTS221[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            sensors[i] = new SensorHTS221(device(10));
+            setUp(sensors[i]);
+            group.add(sensors[i]);
+        }
+        SensorHTS221.Args[] results = results();
+        for (int round = 0; round < 3; round++) assertRead(group.sweep(results), results);
+        for (SensorHTS221 s : sensors) s.close();
+    }
+
+    @Test
+    public void muxWaitsForSlowConversion() throws Exception {
+        SimulatedMux mux = new SimulatedMux(device(10), device(10), device(10), device(10));
+        MuxScheduler scheduler = new MuxScheduler();
+        SensorHTS221[] sensors = new SensorHTS221[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            sensors[i] = new SensorHTS221(mux, i);
+            setUp(sensors[i]);
+            scheduler.add(sensors[i], mux, i);
+        }
+        SensorHTS221.Args[] results = results();
+        for (int round = 0; round < 3; round++) assertRead(scheduler.sweep(results), results);
+        for (SensorHTS221 s : sensors) s.close();
+    }
+
+    @Test
+    public void stalledConversionTimesOut() throws Exception {
+        GroupHTS221 group = new GroupHTS221();
+        SensorHTS221 fast = new SensorHTS221(device(0));
+        SensorHTS221 stalled = new SensorHTS221(device(400));  // 80 ms, past the 50 ms grace
+        setUp(fast);
+        setUp(stalled);
+        group.add(fast);
+        group.add(stalled);
+        SensorHTS221.Args[] results = {new SensorHTS221.Args(), new SensorHTS221.Args()};
+        assertEquals(1, group.sweep(results));
+        assertEquals(0, results[0].err);
+        assertEquals(5, results[1].err);
+        assertEquals(SensorHTS221.message(5), results[1].msg);
+        fast.close();
+        stalled.close();
+    }
+}